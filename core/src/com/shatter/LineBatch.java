@@ -0,0 +1,73 @@
+package com.shatter;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.glutils.ImmediateModeRenderer20;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * This class sends line geometry to the GPU. The vertices are already in
+ * world space, so the whole geometry is copied into one reusable vertex
+ * buffer and drawn with a single draw call per full buffer, there are no
+ * transform changes in between.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class LineBatch implements Disposable {
+
+	private final Mesh mesh;
+	private final ShaderProgram shader;
+	private final int maxVertices;
+
+	/**
+	 * The constructor of the line batch.
+	 * 
+	 * @param maxVertices
+	 *            The vertices per draw call, an even number.
+	 */
+	public LineBatch(int maxVertices) {
+		this.maxVertices = maxVertices & ~1; // whole lines per draw call
+		this.mesh = new Mesh(false, this.maxVertices, 0, new VertexAttribute(Usage.Position, 2,
+				ShaderProgram.POSITION_ATTRIBUTE), new VertexAttribute(Usage.ColorPacked, 4,
+				ShaderProgram.COLOR_ATTRIBUTE));
+		this.shader = ImmediateModeRenderer20.createDefaultShader(false, true, 0);
+	}
+
+	/**
+	 * This method draws line geometry.
+	 * 
+	 * @param projection
+	 *            The projection matrix, e.g. camera.combined.
+	 * @param lines
+	 *            The line geometry.
+	 */
+	public void draw(Matrix4 projection, LineGeometry lines) {
+		int size = lines.size();
+		if (size == 0) {
+			return;
+		}
+		float[] vertices = lines.getVertices();
+		int chunk = maxVertices * LineGeometry.VERTEX_SIZE;
+
+		shader.begin();
+		shader.setUniformMatrix("u_projModelView", projection);
+		for (int offset = 0; offset < size; offset += chunk) {
+			int count = Math.min(chunk, size - offset);
+			mesh.setVertices(vertices, offset, count);
+			mesh.render(shader, GL20.GL_LINES, 0, count / LineGeometry.VERTEX_SIZE);
+		}
+		shader.end();
+	}
+
+	@Override
+	public void dispose() {
+		mesh.dispose();
+		shader.dispose();
+	}
+
+}
@@ -0,0 +1,164 @@
+package com.shatter;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * This class collects line geometry on the CPU, without any GL calls, so it
+ * can be built on any thread. Every vertex takes three floats, x, y and the
+ * packed colour, and every two vertices make a line. Polygons are moved and
+ * turned into world space while they are added, so one array holds
+ * everything that is drawn with the same projection, and it can be sent in
+ * a few draw calls.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class LineGeometry {
+
+	/**
+	 * The floats per vertex, x, y and the packed colour.
+	 */
+	public static final int VERTEX_SIZE = 3;
+
+	private float[] vertices;
+	private int size;
+
+	/**
+	 * The constructor of the line geometry.
+	 * 
+	 * @param capacity
+	 *            The initial number of vertices, the array grows on demand.
+	 */
+	public LineGeometry(int capacity) {
+		vertices = new float[Math.max(2, capacity) * VERTEX_SIZE];
+	}
+
+	/**
+	 * This method removes all lines, the array is kept.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * This method adds the outline of a polygon, moved and turned into world
+	 * space.
+	 * 
+	 * @param polygon
+	 *            The array holding the polygon in its local frame.
+	 * @param offset
+	 *            The offset of the polygon in the array.
+	 * @param count
+	 *            The number of floats of the polygon, at least 4.
+	 * @param x
+	 *            The x value of the position.
+	 * @param y
+	 *            The y value of the position.
+	 * @param angle
+	 *            The angle in degrees.
+	 * @param color
+	 *            The packed colour.
+	 */
+	public void polygon(float[] polygon, int offset, int count, float x, float y, float angle, float color) {
+		int n = count / 2;
+		ensure(n * 2);
+		float cos = MathUtils.cosDeg(angle), sin = MathUtils.sinDeg(angle);
+		float[] v = vertices;
+		int g = size;
+
+		float firstX = x + polygon[offset] * cos - polygon[offset + 1] * sin;
+		float firstY = y + polygon[offset] * sin + polygon[offset + 1] * cos;
+		float prevX = firstX, prevY = firstY;
+		for (int i = 1; i < n; i++) {
+			float px = polygon[offset + i * 2], py = polygon[offset + i * 2 + 1];
+			float wx = x + px * cos - py * sin;
+			float wy = y + px * sin + py * cos;
+			v[g++] = prevX;
+			v[g++] = prevY;
+			v[g++] = color;
+			v[g++] = wx;
+			v[g++] = wy;
+			v[g++] = color;
+			prevX = wx;
+			prevY = wy;
+		}
+		// closing edge
+		v[g++] = prevX;
+		v[g++] = prevY;
+		v[g++] = color;
+		v[g++] = firstX;
+		v[g++] = firstY;
+		v[g++] = color;
+		size = g;
+	}
+
+	/**
+	 * This method adds the lines of other line geometry, moved and turned
+	 * into world space.
+	 * 
+	 * @param local
+	 *            The line geometry in its local frame.
+	 * @param x
+	 *            The x value of the position.
+	 * @param y
+	 *            The y value of the position.
+	 * @param angle
+	 *            The angle in degrees.
+	 */
+	public void lines(LineGeometry local, float x, float y, float angle) {
+		ensure(local.getVertexCount());
+		float cos = MathUtils.cosDeg(angle), sin = MathUtils.sinDeg(angle);
+		float[] src = local.vertices, v = vertices;
+		int g = size;
+		for (int i = 0; i < local.size; i += VERTEX_SIZE) {
+			float px = src[i], py = src[i + 1];
+			v[g++] = x + px * cos - py * sin;
+			v[g++] = y + px * sin + py * cos;
+			v[g++] = src[i + 2];
+		}
+		size = g;
+	}
+
+	/**
+	 * Getter for the vertex array, only the first size() floats are used.
+	 * 
+	 * @return float[] the vertices
+	 */
+	public float[] getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Getter for the number of used floats.
+	 * 
+	 * @return int the float count
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Getter for the number of vertices.
+	 * 
+	 * @return int the vertex count
+	 */
+	public int getVertexCount() {
+		return size / VERTEX_SIZE;
+	}
+
+	/**
+	 * This method makes room for more vertices.
+	 * 
+	 * @param count
+	 *            The number of vertices to add.
+	 */
+	private void ensure(int count) {
+		int needed = size + count * VERTEX_SIZE;
+		if (needed > vertices.length) {
+			float[] grown = new float[Math.max(needed, vertices.length * 2)];
+			System.arraycopy(vertices, 0, grown, 0, size);
+			vertices = grown;
+		}
+	}
+
+}
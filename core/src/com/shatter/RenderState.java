@@ -0,0 +1,28 @@
+package com.shatter;
+
+/**
+ * This class holds everything needed to draw one frame, built after the
+ * simulation: the outlines of the entities, their debug overlays and the
+ * particles, moved into world space as line geometry. Two of them are used in
+ * turns, so the simulation can write the next frame while the last one is
+ * drawn.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class RenderState {
+
+	/**
+	 * The lines of the frame in world space, written by the simulation
+	 * thread and drawn by the GL thread once the state is the front state.
+	 */
+	public final LineGeometry lines = new LineGeometry(4096);
+
+	/**
+	 * This method empties the state, the arrays are kept.
+	 */
+	public void clear() {
+		lines.clear();
+	}
+
+}
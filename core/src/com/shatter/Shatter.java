@@ -1,17 +1,30 @@
 package com.shatter;
 
-import com.shatter.system.BulletSystem;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+import com.shatter.fracture.FractureDetail;
+import com.shatter.fracture.FracturePack;
+import com.shatter.fracture.FracturePatternLibrary;
 import com.shatter.system.CollisionSystem;
+import com.shatter.system.FractureCacheSystem;
+import com.shatter.system.FractureSystem;
 import com.shatter.system.GunSystem;
+import com.shatter.system.LifetimeSystem;
+import com.shatter.system.ParticleSystem;
+import com.shatter.system.ParallelIteratingSystem;
 import com.shatter.system.PhysicsSystem;
+import com.shatter.system.QualityGovernor;
 import com.shatter.system.RenderSystem;
 import com.shatter.system.ShipSystem;
-import com.badlogic.ashley.core.Engine;
+import com.shatter.system.WrapSystem;
+import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.ai.msg.MessageManager;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
@@ -31,15 +44,24 @@ import com.badlogic.gdx.utils.viewport.ScreenViewport;
  * @version 1.0
  */
 public class Shatter extends ApplicationAdapter {
-	Engine engine;
+	PooledEngine engine;
 	Entity ship;
 	RenderSystem reSys;
 	CollisionSystem collSys;
+	FractureSystem fractSys;
+	ParticleSystem partSys;
+	QualityGovernor governor;
+	ExecutorService systemPool;
+	SimulationPipeline pipeline;
 	World world;
+	FracturePatternLibrary patterns;
 	OrthographicCamera camera;
 	Label points;
 	Label fps;
+	Label fractures;
+	Label quality;
 	Stage stage;
+	float drawMillis;
 
 	/**
 	 * This is the overwritten libgdx startup method.
@@ -51,16 +73,49 @@ public class Shatter extends ApplicationAdapter {
 
 		camera = new OrthographicCamera();
 		reSys = new RenderSystem(camera);
-		engine = new Engine();
+		engine = new PooledEngine();
 		world = new World(engine);
-		collSys = new CollisionSystem(engine, world);
+		// without a spare core the fracture work is time sliced
+		if (Runtime.getRuntime().availableProcessors() > 1) {
+			fractSys = new FractureSystem(world);
+		} else {
+			fractSys = new FractureSystem(world, 4f);
+		}
+		partSys = new ParticleSystem(1024);
+		// parallel systems use the spare cores and the render thread
+		int cores = Runtime.getRuntime().availableProcessors();
+		systemPool = cores > 1 ? ParallelIteratingSystem.createPool(cores - 1) : null;
+		collSys = new CollisionSystem(engine, world, fractSys, partSys);
+		// the dynamic point count is the most an asteroid in full view gets
+		collSys.setDetail(new FractureDetail(camera));
 
+		// the fracture patterns are triangulated once, shattering just clips
+		// them
+		patterns = loadPatterns();
+		collSys.setPatterns(patterns);
+
+		// first, so finished fractures are applied at the start of a frame
+		engine.addSystem(fractSys);
 		engine.addSystem(collSys);
-		engine.addSystem(new ShipSystem(world));
+		engine.addSystem(new ShipSystem(partSys));
+		engine.addSystem(new WrapSystem(camera, systemPool, cores));
 		engine.addSystem(reSys);
+		engine.addSystem(partSys);
 		engine.addSystem(new GunSystem(world));
-		engine.addSystem(new BulletSystem());
+		engine.addSystem(new LifetimeSystem());
 		engine.addSystem(new PhysicsSystem());
+		// untouched triangulations are dropped beyond 1 MB
+		engine.addSystem(new FractureCacheSystem(1 << 20, 5f));
+		// 60 frames per second
+		governor = new QualityGovernor(collSys, fractSys, 1000f / 60f);
+		governor.setEnabled(true);
+		engine.addSystem(governor);
+
+		// rendering and the governor run once per frame, the rest in fixed
+		// steps at 60 Hz, at most 5 per frame, on its own thread if there is
+		// a spare core
+		governor.setProcessing(false);
+		pipeline = new SimulationPipeline(new SimulationLoop(engine, 60f, 5), reSys, partSys, cores > 1);
 
 		ship = world.createShip();
 
@@ -92,6 +147,50 @@ public class Shatter extends ApplicationAdapter {
 		fps.setBounds(10, 22, 22, 22);
 		fps.setColor(Color.ORANGE);
 		stage.addActor(fps);
+
+		fractures = new Label("fractures: ", textStyle);
+		fractures.setFontScale(1f, 1f);
+		fractures.setBounds(10, 34, 34, 34);
+		fractures.setColor(Color.GRAY);
+		stage.addActor(fractures);
+
+		quality = new Label("quality: ", textStyle);
+		quality.setFontScale(1f, 1f);
+		quality.setBounds(10, 46, 46, 46);
+		quality.setColor(Color.GRAY);
+		stage.addActor(quality);
+	}
+
+	/**
+	 * This method loads the fracture patterns from the pattern pack. If there
+	 * is no valid pack yet or it lacks the sparse patterns of the low quality
+	 * levels, the patterns are triangulated in the densities of the levels
+	 * and the pack is written for the next start.
+	 * 
+	 * @return FracturePatternLibrary the patterns
+	 */
+	private FracturePatternLibrary loadPatterns() {
+		FileHandle pack = Gdx.files.local("fracture.pack");
+		if (pack.exists()) {
+			try {
+				FracturePatternLibrary library = new FracturePatternLibrary(FracturePack.read(pack.file()),
+						System.currentTimeMillis());
+				if (library.getMinPointCount() <= QualityGovernor.getPointCounts()[0]) {
+					return library;
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		FracturePatternLibrary library = new FracturePatternLibrary(4, QualityGovernor.getPointCounts(),
+				System.currentTimeMillis());
+		try {
+			FracturePack.write(library.getPatterns(), pack.file());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return library;
 	}
 
 	/**
@@ -105,22 +204,59 @@ public class Shatter extends ApplicationAdapter {
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 		Gdx.gl.glLineWidth(1.5f);
 
+		// the simulation is idle until the next frame is started
+		RenderState state = pipeline.join();
+
 		this.camera.position.set(0.0F, 0.0F, 0.0F);
 
 		this.camera.update();
 		
-		if(Gdx.input.isKeyPressed(Input.Keys.A)){
+		if (Gdx.input.isKeyJustPressed(Input.Keys.G)) {
+			governor.setEnabled(!governor.isEnabled());
+		}
+		// the point count is set by hand only without the governor
+		if(Gdx.input.isKeyPressed(Input.Keys.A) && !governor.isEnabled()){
 			collSys.incrPointCount();
-		} else if(Gdx.input.isKeyPressed(Input.Keys.D)){
+		} else if(Gdx.input.isKeyPressed(Input.Keys.D) && !governor.isEnabled()){
 			collSys.decrPointCount();
 		}
-
-		// update game logic
-		engine.update(Gdx.graphics.getDeltaTime());
+		if (Gdx.input.isKeyJustPressed(Input.Keys.P)) {
+			collSys.setPatterns(collSys.getPatterns() == null ? patterns : null);
+		}
+		if (Gdx.input.isKeyJustPressed(Input.Keys.L)) {
+			collSys.setImpact(!collSys.isImpact());
+		}
+		if (Gdx.input.isKeyJustPressed(Input.Keys.O)) {
+			reSys.setDebugOverlay(!reSys.isDebugOverlay());
+		}
+		// vsync holds the frame time, so the governor gets the CPU work
+		governor.update(Gdx.graphics.getDeltaTime(), pipeline.getSimulationMillis() + drawMillis);
 		MessageManager.getInstance().update(Gdx.graphics.getDeltaTime());
-		
+
 		fps.setText("fps: " + Gdx.graphics.getFramesPerSecond());
-		points.setText("dynamic points: " + collSys.getPointCount());
+		if (collSys.getPatterns() != null) {
+			points.setText("fracture patterns up to " + collSys.getPointCount() + " points (P to switch)");
+		} else {
+			points.setText("dynamic points: " + collSys.getPointCount() + " (last " + collSys.getDetail().getLastCount()
+					+ ")"
+					+ (collSys.isImpact() ? ", impact fracture (L to switch)" : ", sector fracture (L to switch)"));
+		}
+		fractures.setText("fractures queued: " + fractSys.getPendingCount() + ", budget overruns: "
+				+ fractSys.getOverrunCount() + (reSys.isDebugOverlay() ? ", overlay on" : ", overlay off")
+				+ " (O to switch)");
+		if (governor.isEnabled()) {
+			quality.setText("quality: " + governor.getLevel() + "/" + governor.getMaxLevel() + ", points "
+					+ governor.getPointCount() + ", particles " + governor.getParticleCount() + ", debris "
+					+ fractSys.getDebrisCount() + "/" + governor.getDebrisCap() + " (G to switch)");
+		} else {
+			quality.setText("quality: manual, A and D change the points (G to switch)");
+		}
+
+		// update game logic of the next frame while this one is drawn
+		pipeline.start(Gdx.graphics.getDeltaTime());
+		long drawStart = System.nanoTime();
+		reSys.draw(state);
+		drawMillis = (System.nanoTime() - drawStart) / 1000000f;
 
 		stage.act(Gdx.graphics.getDeltaTime());
 		stage.draw();
@@ -137,6 +273,8 @@ public class Shatter extends ApplicationAdapter {
 	 */
 	@Override
 	public void resize(int width, int height) {
+		// the simulation reads the viewport
+		pipeline.join();
 		float ar = width / height;
 		this.camera.setToOrtho(false, 50, 50 / ar);
 		stage.getViewport().update(width, height, true);
@@ -144,6 +282,12 @@ public class Shatter extends ApplicationAdapter {
 
 	@Override
 	public void dispose() {
+		pipeline.dispose();
+		fractSys.dispose();
+		reSys.dispose();
+		if (systemPool != null) {
+			systemPool.shutdown();
+		}
 		stage.dispose();
 	}
 
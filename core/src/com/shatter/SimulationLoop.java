@@ -0,0 +1,171 @@
+package com.shatter;
+
+import com.shatter.component.Position;
+
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+
+/**
+ * This class drives the simulation with a fixed time step. The time of every
+ * frame is added to an accumulator and the engine is updated in steps of the
+ * same length as long as there is enough time left, so the simulation doesn't
+ * depend on the frame rate. After a long frame at most maxSteps steps are
+ * caught up and the rest of the time is dropped, so one slow frame can't make
+ * the following ones even slower.
+ * 
+ * Before each step the current poses are stored as the previous ones. The
+ * time left in the accumulator gives the blend factor between the two, which
+ * the renderer uses to draw the poses in between steps.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class SimulationLoop {
+
+	/**
+	 * The engine holding the simulation systems, updated once per step.
+	 */
+	private Engine engine;
+
+	/**
+	 * The entities with a position, their poses are stored before each step.
+	 */
+	private ImmutableArray<Entity> poses;
+
+	/**
+	 * The length of a step in seconds.
+	 */
+	private float step;
+
+	/**
+	 * The most steps per frame, time beyond them is dropped.
+	 */
+	private int maxSteps;
+
+	/**
+	 * The frame time not simulated yet, less than one step after advance().
+	 */
+	private float accumulator;
+
+	/**
+	 * The number of steps run in the last frame.
+	 */
+	private int lastSteps;
+
+	/**
+	 * The number of frames that dropped time.
+	 */
+	private int droppedFrames;
+
+	/**
+	 * The constructor of the simulation loop.
+	 * 
+	 * @param engine
+	 *            The engine holding the simulation systems.
+	 * @param rate
+	 *            The steps per second.
+	 * @param maxSteps
+	 *            The most steps per frame.
+	 */
+	public SimulationLoop(Engine engine, float rate, int maxSteps) {
+		this.engine = engine;
+		this.poses = engine.getEntitiesFor(Family.all(Position.class).get());
+		setRate(rate);
+		setMaxSteps(maxSteps);
+	}
+
+	/**
+	 * This method runs the steps due after a frame.
+	 * 
+	 * @param deltaTime
+	 *            The time passed since the last frame.
+	 * @return int the number of steps run
+	 */
+	public int advance(float deltaTime) {
+		accumulator += deltaTime;
+		int steps = 0;
+		while (accumulator >= step && steps < maxSteps) {
+			for (int i = 0; i < poses.size(); i++) {
+				poses.get(i).getComponent(Position.class).storePrevious();
+			}
+			engine.update(step);
+			accumulator -= step;
+			steps++;
+		}
+		if (accumulator >= step) {
+			// too far behind, the simulation slows down instead
+			accumulator %= step;
+			droppedFrames++;
+		}
+		lastSteps = steps;
+		return steps;
+	}
+
+	/**
+	 * Getter for the blend factor between the previous and the current poses.
+	 * 
+	 * @return float the factor from 0 to 1
+	 */
+	public float getAlpha() {
+		return accumulator / step;
+	}
+
+	/**
+	 * Getter for the steps per second.
+	 * 
+	 * @return float the rate
+	 */
+	public float getRate() {
+		return 1f / step;
+	}
+
+	/**
+	 * Setter for the steps per second.
+	 * 
+	 * @param rate
+	 *            The rate.
+	 */
+	public void setRate(float rate) {
+		this.step = 1f / rate;
+	}
+
+	/**
+	 * Getter for the length of a step.
+	 * 
+	 * @return float the step in seconds
+	 */
+	public float getStep() {
+		return step;
+	}
+
+	/**
+	 * Setter for the most steps per frame.
+	 * 
+	 * @param maxSteps
+	 *            The step count.
+	 */
+	public void setMaxSteps(int maxSteps) {
+		this.maxSteps = Math.max(1, maxSteps);
+	}
+
+	/**
+	 * Getter for the number of steps run in the last frame.
+	 * 
+	 * @return int the step count
+	 */
+	public int getLastSteps() {
+		return lastSteps;
+	}
+
+	/**
+	 * Getter for the number of frames that dropped time.
+	 * 
+	 * @return int the frame count
+	 */
+	public int getDroppedFrames() {
+		return droppedFrames;
+	}
+
+}
@@ -0,0 +1,226 @@
+package com.shatter;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.shatter.system.ParticleSystem;
+import com.shatter.system.RenderSystem;
+
+/**
+ * This class runs the simulation of the next frame on its own thread while
+ * the GL thread draws the last one. After the simulation steps the outlines
+ * and particles are built as line geometry of the back render state. join()
+ * waits for that and swaps the back state to the front, which is then drawn,
+ * and start() hands the next frame to the simulation thread.
+ * 
+ * Between join() and start() the simulation thread is idle, only then may the
+ * GL thread touch the engine, the entities and the systems, e.g. to handle
+ * input. The drawn frame is one frame behind the simulation. Without a
+ * simulation thread the frame is simulated in start(), in the same order.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class SimulationPipeline {
+
+	/**
+	 * The fixed step simulation loop. It and the engine it updates belong to
+	 * the simulation thread while a frame is pending, and to the GL thread
+	 * between join() and start().
+	 */
+	private final SimulationLoop loop;
+
+	/**
+	 * The render system capturing the entities, on the simulation thread.
+	 * Its draw() only reads the front state and may run on the GL thread
+	 * while the next frame is simulated.
+	 */
+	private final RenderSystem renderSystem;
+
+	/**
+	 * The particle system capturing the particles, on the simulation thread
+	 * like the loop.
+	 */
+	private final ParticleSystem particleSystem;
+
+	/**
+	 * The simulation thread, null if the frames are simulated on the GL
+	 * thread. Only the GL thread submits to it.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * The frame being simulated, null if there is none. Only touched by the
+	 * GL thread, its get() in join() makes the writes of the simulation
+	 * thread visible.
+	 */
+	private Future<?> pending;
+
+	/**
+	 * The state of the last simulated frame, only touched by the GL thread.
+	 */
+	private RenderState front = new RenderState();
+
+	/**
+	 * The state the simulation thread writes while a frame is pending. The
+	 * GL thread only swaps it in join(), after the frame is done.
+	 */
+	private RenderState back = new RenderState();
+
+	/**
+	 * The time of the pending frame, written by the GL thread in start()
+	 * before the frame is submitted and read by the simulation thread.
+	 */
+	private float deltaTime;
+
+	/**
+	 * True if the back state holds a frame that wasn't swapped yet, only
+	 * touched by the GL thread.
+	 */
+	private boolean ready;
+
+	/**
+	 * The CPU time of the last simulated frame, written by the simulation
+	 * thread and read by the GL thread after join().
+	 */
+	private long simulationNanos;
+
+	/**
+	 * The simulation of one frame, written into the back state.
+	 */
+	private final Runnable frame = new Runnable() {
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			loop.advance(deltaTime);
+			renderSystem.capture(back, loop.getAlpha());
+			particleSystem.capture(back);
+			simulationNanos = System.nanoTime() - start;
+		}
+	};
+
+	/**
+	 * The constructor of the pipeline.
+	 * 
+	 * @param loop
+	 *            The fixed step simulation loop.
+	 * @param renderSystem
+	 *            The render system capturing the entities.
+	 * @param particleSystem
+	 *            The particle system capturing the particles.
+	 * @param threaded
+	 *            True to simulate on its own thread.
+	 */
+	public SimulationPipeline(SimulationLoop loop, RenderSystem renderSystem, ParticleSystem particleSystem,
+			boolean threaded) {
+		this.loop = loop;
+		this.renderSystem = renderSystem;
+		this.particleSystem = particleSystem;
+		if (threaded) {
+			executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "simulation");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+	}
+
+	/**
+	 * This method hands the next frame to the simulation.
+	 * 
+	 * @param deltaTime
+	 *            The time passed since the last frame.
+	 */
+	public void start(float deltaTime) {
+		join();
+		this.deltaTime = deltaTime;
+		if (executor == null) {
+			frame.run();
+		} else {
+			pending = executor.submit(frame);
+		}
+		ready = true;
+	}
+
+	/**
+	 * This method waits for the simulated frame, if there is one, and swaps
+	 * it to the front.
+	 * 
+	 * @return RenderState the front state to draw
+	 */
+	public RenderState join() {
+		if (pending != null) {
+			try {
+				pending.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			} finally {
+				pending = null;
+			}
+		}
+		if (!ready) {
+			return front;
+		}
+		ready = false;
+		RenderState swap = front;
+		front = back;
+		back = swap;
+		return front;
+	}
+
+	/**
+	 * Getter for the front state, the last simulated frame.
+	 * 
+	 * @return RenderState the render state
+	 */
+	public RenderState getFront() {
+		return front;
+	}
+
+	/**
+	 * Getter for the CPU time of the last simulated frame, valid after
+	 * join().
+	 * 
+	 * @return float the time in milliseconds
+	 */
+	public float getSimulationMillis() {
+		return simulationNanos / 1000000f;
+	}
+
+	/**
+	 * Getter for the simulation loop.
+	 * 
+	 * @return SimulationLoop the loop
+	 */
+	public SimulationLoop getLoop() {
+		return loop;
+	}
+
+	/**
+	 * Returns true if the simulation runs on its own thread.
+	 * 
+	 * @return boolean true if threaded
+	 */
+	public boolean isThreaded() {
+		return executor != null;
+	}
+
+	/**
+	 * This method waits for the simulation and stops its thread.
+	 */
+	public void dispose() {
+		join();
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+}
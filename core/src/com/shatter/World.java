@@ -1,21 +1,21 @@
 package com.shatter;
 
-import java.util.ArrayList;
 import java.util.Random;
 
 import com.shatter.component.Bullet;
 import com.shatter.component.Collider;
 import com.shatter.component.Fracture;
+import com.shatter.component.Lifetime;
 import com.shatter.component.Gun;
 import com.shatter.component.Movement;
 import com.shatter.component.Position;
 import com.shatter.component.Ship;
 import com.shatter.component.Visual;
-import com.shatter.dt.Triangulator;
-import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.FloatArray;
 
 /**
  * This class represents the game world and is able to create certain entities.
@@ -25,38 +25,73 @@ import com.badlogic.gdx.math.Vector2;
  */
 public class World {
 
-	private Engine engine;
+	/**
+	 * The deepest fragments that can be shattered again.
+	 */
+	public static final int MAX_FRAGMENT_DEPTH = 2;
+
+	/**
+	 * The smallest area of fragments that can be shattered again.
+	 */
+	public static final float MIN_FRAGMENT_AREA = 1.0f;
+
+	/**
+	 * The squared distance below which outline vertices of a fragment are
+	 * merged.
+	 */
+	private static final float WELD_DISTANCE2 = 1e-8f;
+
+	/**
+	 * The shape of a bullet, shared by all bullets.
+	 */
+	private static final float[] BULLET_VERTICES = { 0.0F, 0.25F, -0.25F, -0.25F, 0.0F, -0.175F, 0.25F, -0.25F };
+
+	private PooledEngine engine;
 	private Random rand = new Random();
 
-	public World(Engine engine) {
+	public World(PooledEngine engine) {
 		this.engine = engine;
 	}
 
+	/**
+	 * This method lets an entity be removed after a lifetime.
+	 * 
+	 * @param entity
+	 *            The entity.
+	 * @param lifetime
+	 *            The lifetime in seconds.
+	 */
+	public void setLifetime(Entity entity, float lifetime) {
+		Lifetime l = this.engine.createComponent(Lifetime.class);
+		l.setLifetime(lifetime);
+		entity.add(l);
+	}
+
 	/**
 	 * This method creates the Entity called Ship.
 	 * 
 	 * @return Entity The ship entity.
 	 */
 	public Entity createShip() {
-		Entity ship = new Entity();
+		Entity ship = this.engine.createEntity();
 
-		Movement m = new Movement();
+		Movement m = this.engine.createComponent(Movement.class);
 		m.setDamp(1.0f);
 		ship.add(m);
 		
-		Position p = new Position();
+		Position p = this.engine.createComponent(Position.class);
 		ship.add(p);
 		
-		Visual v = new Visual();
+		Visual v = this.engine.createComponent(Visual.class);
 		ship.add(v);
-		ship.add(new Ship());
+		ship.add(this.engine.createComponent(Ship.class));
 
-		Gun g = new Gun();
+		Gun g = this.engine.createComponent(Gun.class);
 		g.setCoolDown(0.18f);
-		g.setOffset(new Vector2(0.0f, 1.5f));
+		g.offset.set(0.0f, 1.5f);
 		ship.add(g);
 
-		Collider c = new Collider();
+		Collider c = this.engine.createComponent(Collider.class);
 		c.setRadius(1.0f);
 		c.setFlag(1);
 		c.setMask(2);
@@ -72,27 +107,29 @@ public class World {
 	 * @return Entity The bullet entity.
 	 */
 	public Entity createBullet(float x, float y, float angle) {
-		float[] VERTICES = { 0.0F, 0.25F, -0.25F, -0.25F, 0.0F, -0.175F, 0.25F, -0.25F };
-		Vector2 vel = new Vector2(0.0F, 30.0F).rotate(angle);
-		Entity bullet = new Entity();
+		Entity bullet = this.engine.createEntity();
 
-		Position p = new Position();
-		p.setPos(new Vector2(x, y));
+		Position p = this.engine.createComponent(Position.class);
+		p.setPos(x, y);
 		p.setAngle(angle);
 		bullet.add(p);
 
-		Movement m = new Movement();
-		m.setVel(vel);
+		Movement m = this.engine.createComponent(Movement.class);
+		m.vel.set(0.0F, 30.0F).rotate(angle);
 		bullet.add(m);
 
-		Visual v = new Visual();
-		v.setVERTICES(VERTICES);
+		Visual v = this.engine.createComponent(Visual.class);
+		v.setVERTICES(BULLET_VERTICES);
 		v.setCOLOR(Color.ORANGE);
 		bullet.add(v);
 
-		bullet.add(new Bullet());
+		bullet.add(this.engine.createComponent(Bullet.class));
+
+		Lifetime l = this.engine.createComponent(Lifetime.class);
+		l.setLifetime(1.0F);
+		bullet.add(l);
 
-		Collider c = new Collider();
+		Collider c = this.engine.createComponent(Collider.class);
 		c.setRadius(0.4f);
 		c.setFlag(4);
 		c.setMask(2);
@@ -102,61 +139,21 @@ public class World {
 		return bullet;
 	}
 
-	/**
-	 * This method creates the Entity called Particle.
-	 * 
-	 * @return Entity The particle entity.
-	 */
-	public Entity createParticle(float x, float y, float angle, float lifetime) {
-		float[] VERTICES = { 0.0F, 0.15F, -0.15F, -0.15F, 0.15F, -0.15F };
-		Vector2 vel = new Vector2(0.0F, (float) (Math.random() * 30)).rotate(angle);
-		Entity particle = new Entity();
-
-		Position p = new Position();
-		p.setPos(new Vector2(x, y));
-		p.setAngle(angle);
-		particle.add(p);
-
-		Movement m = new Movement();
-		m.setAngVel((float) (Math.random() * 360));
-		m.setVel(vel);
-		particle.add(m);
-
-		Visual v = new Visual();
-		v.setVERTICES(VERTICES);
-		Color c = new Color();
-		c.r = (float) (Math.random() * 255);
-		c.g = (float) (Math.random() * 255);
-		c.b = (float) (Math.random() * 255);
-		v.setCOLOR(c);
-		particle.add(v);
-
-		Bullet b = new Bullet();
-		b.setLifeTime(lifetime / 80);
-		particle.add(b);
-
-		this.engine.addEntity(particle);
-		return particle;
-	}
-
 	/**
 	 * This method creates the Entity called Asteroid.
 	 * 
 	 * @return Entity The asteroid entity.
 	 */
 	public Entity createAsteroid(Vector2 pos, float size) {
-		Entity asteroid = new Entity();
+		Entity asteroid = this.engine.createEntity();
 
-		Position p = new Position();
+		Position p = this.engine.createComponent(Position.class);
 		p.setPos(pos);
 		asteroid.add(p);
 
-		Vector2 vel = new Vector2(this.rand.nextFloat() * 4f, 0f);
-		vel.rotate(360.0F * this.rand.nextFloat()); // random velocity rotated
-													// randomly
-
-		Movement m = new Movement();
-		m.setVel(vel);
+		Movement m = this.engine.createComponent(Movement.class);
+		// random velocity rotated randomly
+		m.vel.set(this.rand.nextFloat() * 4f, 0f).rotate(360.0F * this.rand.nextFloat());
 		m.setAngVel(this.rand.nextFloat() * 2f);
 		asteroid.add(m);
 
@@ -173,22 +170,17 @@ public class World {
 			vertices[(i * 2 + 1)] = ps.y;
 		}
 
-		Visual v = new Visual();
+		Visual v = this.engine.createComponent(Visual.class);
 		v.setVERTICES(vertices);
 		v.setCOLOR(Color.BLACK);
 		asteroid.add(v);
 
-		// add fracture component
-		Fracture f = new Fracture();
-		ArrayList<Vector2> points = new ArrayList<Vector2>();
-		for (int i = 0; i < vertices.length / 2; i++) {
-			points.add(new Vector2(vertices[(i * 2)], vertices[(i * 2 + 1)]));
-		}
-		Triangulator d = new Triangulator(points);
-		f.setTriangulator(d);
+		// add fracture component, it is triangulated on first use
+		Fracture f = this.engine.createComponent(Fracture.class);
+		f.setOutline(vertices);
 		asteroid.add(f);
 
-		Collider c = new Collider();
+		Collider c = this.engine.createComponent(Collider.class);
 		c.setRadius(1.5f * size);
 		c.setFlag(2);
 		c.setMask(5);
@@ -198,28 +190,154 @@ public class World {
 		return asteroid;
 	}
 
+	/**
+	 * This method creates a fragment out of a cell of a shattered asteroid,
+	 * centered on the centroid of the cell and turned like its parent.
+	 * Fragments that aren't too deep or too small get a fracture component
+	 * seeded with the site of the cell and a collider, so they can be
+	 * shattered again. Their triangulation is only built when they are hit.
+	 * 
+	 * @param parent
+	 *            The shattered asteroid.
+	 * @param vertices
+	 *            The array holding the cell in the local frame of the parent.
+	 * @param offset
+	 *            The offset of the cell in the array.
+	 * @param count
+	 *            The number of floats of the cell.
+	 * @param siteX
+	 *            The x value of the site of the cell, NaN if it has none.
+	 * @param siteY
+	 *            The y value of the site of the cell, NaN if it has none.
+	 * @return Entity The fragment entity.
+	 */
+	public Entity createFragment(Entity parent, float[] vertices, int offset, int count, float siteX,
+			float siteY) {
+		Fracture pf = parent.getComponent(Fracture.class);
+		return createPiece(parent, vertices, offset, count, siteX, siteY, pf != null ? pf.depth + 1 : 1);
+	}
+
+	/**
+	 * This method creates the remaining body of an asteroid shattered around
+	 * an impact. Unlike a fragment it keeps the depth of its parent, so it can
+	 * be hit again until it is too small.
+	 * 
+	 * @param parent
+	 *            The shattered asteroid.
+	 * @param outline
+	 *            The outline of the body in the local frame of the parent.
+	 * @return Entity The body entity.
+	 */
+	public Entity createBody(Entity parent, float[] outline) {
+		Fracture pf = parent.getComponent(Fracture.class);
+		return createPiece(parent, outline, 0, outline.length, Float.NaN, Float.NaN, pf != null ? pf.depth : 1);
+	}
+
+	/**
+	 * This method creates a piece of a shattered asteroid, see
+	 * createFragment().
+	 * 
+	 * @param parent
+	 *            The shattered asteroid.
+	 * @param vertices
+	 *            The array holding the piece in the local frame of the parent.
+	 * @param offset
+	 *            The offset of the piece in the array.
+	 * @param count
+	 *            The number of floats of the piece.
+	 * @param siteX
+	 *            The x value of the seed of the piece, NaN if it has none.
+	 * @param siteY
+	 *            The y value of the seed of the piece, NaN if it has none.
+	 * @param depth
+	 *            The fracture depth of the piece.
+	 * @return Entity The piece entity.
+	 */
+	private Entity createPiece(Entity parent, float[] vertices, int offset, int count, float siteX, float siteY,
+			int depth) {
+		// area and centroid of the cell
+		float area = 0, cx = 0, cy = 0;
+		for (int i = 0; i < count; i += 2) {
+			int j = (i + 2) % count;
+			float x0 = vertices[offset + i], y0 = vertices[offset + i + 1];
+			float x1 = vertices[offset + j], y1 = vertices[offset + j + 1];
+			float cross = x0 * y1 - x1 * y0;
+			area += cross;
+			cx += (x0 + x1) * cross;
+			cy += (y0 + y1) * cross;
+		}
+		if (area != 0) {
+			cx /= 3 * area;
+			cy /= 3 * area;
+		} else {
+			cx = vertices[offset];
+			cy = vertices[offset + 1];
+		}
+		area = Math.abs(area / 2);
+
+		// the fragment keeps its own outline around the centroid, without
+		// repeated vertices
+		FloatArray outline = new FloatArray(count);
+		float radius = 0;
+		for (int i = 0; i < count; i += 2) {
+			float x = vertices[offset + i] - cx;
+			float y = vertices[offset + i + 1] - cy;
+			if (outline.size == 0
+					|| Vector2.dst2(x, y, outline.get(outline.size - 2), outline.get(outline.size - 1)) >= WELD_DISTANCE2) {
+				outline.add(x);
+				outline.add(y);
+				radius = Math.max(radius, Vector2.len(x, y));
+			}
+		}
+		while (outline.size >= 4 && Vector2.dst2(outline.get(0), outline.get(1), outline.get(outline.size - 2),
+				outline.get(outline.size - 1)) < WELD_DISTANCE2) {
+			outline.size -= 2;
+		}
+		float[] outlineArray = outline.toArray();
+
+		Position pp = parent.getComponent(Position.class);
+		Entity fragment = createAsteroidVD(new Vector2(cx, cy).rotate(pp.angle).add(pp.pos), outlineArray);
+		fragment.getComponent(Position.class).setAngle(pp.angle);
+
+		if (depth <= MAX_FRAGMENT_DEPTH && area >= MIN_FRAGMENT_AREA && outlineArray.length >= 6) {
+			// add fracture component, it is triangulated on first use
+			Fracture f = this.engine.createComponent(Fracture.class);
+			f.setOutline(outlineArray);
+			f.setDepth(depth);
+			if (!Float.isNaN(siteX)) {
+				// the site of the parent's mesh is the first inner point
+				f.setSeeds(new float[] { siteX - cx, siteY - cy });
+			}
+			fragment.add(f);
+
+			Collider c = this.engine.createComponent(Collider.class);
+			c.setRadius(radius);
+			c.setFlag(2);
+			c.setMask(5);
+			fragment.add(c);
+		}
+		return fragment;
+	}
+
 	/**
 	 * This method creates the Entity called AsteroidVD.
 	 * 
 	 * @return Entity The asteroid entity.
 	 */
 	public Entity createAsteroidVD(Vector2 pos, float[] vertices) {
-		Entity asteroid = new Entity();
+		Entity asteroid = this.engine.createEntity();
 
-		Position p = new Position();
+		Position p = this.engine.createComponent(Position.class);
 		p.setPos(pos);
 		asteroid.add(p);
 
-		Vector2 vel = new Vector2(this.rand.nextFloat() * 4f, 0f);
-		vel.rotate(360.0F * this.rand.nextFloat()); // random velocity rotated
-													// randomly
-
-		Movement m = new Movement();
-		m.setVel(vel);
+		Movement m = this.engine.createComponent(Movement.class);
+		// random velocity rotated randomly
+		m.vel.set(this.rand.nextFloat() * 4f, 0f).rotate(360.0F * this.rand.nextFloat());
 		m.setAngVel(this.rand.nextFloat() * 2f);
 		asteroid.add(m);
 
-		Visual v = new Visual();
+		Visual v = this.engine.createComponent(Visual.class);
 		v.setVERTICES(vertices);
 		v.setCOLOR(Color.BLACK);
 		asteroid.add(v);
@@ -1,8 +1,9 @@
 package com.shatter.component;
 
 import com.badlogic.ashley.core.Component;
+import com.badlogic.gdx.utils.Pool.Poolable;
 
-public class Collider implements Component{
+public class Collider implements Component, Poolable {
 	public float radius = 1.0f;
 	public int flag;
 	public int mask;
@@ -18,4 +19,11 @@ public class Collider implements Component{
 	public void setMask(int mask){
 		this.mask = mask;
 	}
+
+	@Override
+	public void reset() {
+		radius = 1.0f;
+		flag = 0;
+		mask = 0;
+	}
 }
@@ -1,17 +1,66 @@
 package com.shatter.component;
 
+import java.util.ArrayList;
+
 import com.badlogic.ashley.core.Component;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool.Poolable;
+import com.shatter.LineGeometry;
 import com.shatter.dt.Triangulator;
 
 /**
- * This class represents the fracture component and stores a triangulator
- * object.
+ * This class represents the fracture component and stores the outline of an
+ * asteroid. The triangulator object is built from the outline on first use,
+ * e.g. when the asteroid is hit, and can be evicted again while it isn't
+ * pinned. Fragments inherit the site of their cell as seed point of their
+ * triangulation and know how often their ancestors were shattered. The
+ * debug overlay of the triangulation is kept as line geometry in the local
+ * frame, together with the version of the triangulation it was built from.
  * 
  * @author Julia Angerer
  * @version 1.0
  */
-public class Fracture implements Component {
+public class Fracture implements Component, Poolable {
+	public float[] outline;
+	public float[] seeds;
+	public int depth;
 	public Triangulator triangulator;
+	public long lastUsed;
+	public boolean pinned;
+	public LineGeometry overlay;
+	public long overlayVersion = -1;
+
+	/**
+	 * Setter for the outline the triangulation is built from.
+	 * 
+	 * @param outline
+	 *            The outline vertices in the local frame.
+	 */
+	public void setOutline(float[] outline) {
+		this.outline = outline;
+	}
+
+	/**
+	 * Setter for the inner points added to the outline when the
+	 * triangulation is built.
+	 * 
+	 * @param seeds
+	 *            The points in the local frame, x and y per point.
+	 */
+	public void setSeeds(float[] seeds) {
+		this.seeds = seeds;
+	}
+
+	/**
+	 * Setter for the fracture depth.
+	 * 
+	 * @param depth
+	 *            0 for an asteroid, the depth of the parent + 1 for a
+	 *            fragment.
+	 */
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
 
 	/**
 	 * Setter for the triangulation object.
@@ -21,5 +70,90 @@ public class Fracture implements Component {
 	 */
 	public void setTriangulator(Triangulator triangulator) {
 		this.triangulator = triangulator;
+		this.overlayVersion = -1;
+	}
+
+	/**
+	 * Setter for the pinned flag, a pinned triangulation isn't evicted.
+	 * 
+	 * @param pinned
+	 *            true while the triangulation is in use.
+	 */
+	public void setPinned(boolean pinned) {
+		this.pinned = pinned;
+	}
+
+	/**
+	 * Getter for the triangulation object, it is built in constrained mode
+	 * out of the outline and the seeds if there is none yet. Marks the
+	 * triangulation as used.
+	 * 
+	 * @return Triangulator the triangulation object
+	 */
+	public Triangulator getTriangulator() {
+		if (triangulator == null) {
+			triangulator = createTriangulator(outline, seeds);
+		}
+		lastUsed = System.nanoTime();
+		return triangulator;
+	}
+
+	/**
+	 * This method builds a triangulation in constrained mode out of an
+	 * outline and seeds. It doesn't touch any component, so it can run on
+	 * any thread.
+	 * 
+	 * @param outline
+	 *            The outline vertices in the local frame.
+	 * @param seeds
+	 *            The inner points in the local frame, null if there are none.
+	 * @return Triangulator the triangulation object
+	 */
+	public static Triangulator createTriangulator(float[] outline, float[] seeds) {
+		ArrayList<Vector2> points = new ArrayList<Vector2>();
+		for (int i = 0; i < outline.length / 2; i++) {
+			points.add(new Vector2(outline[(i * 2)], outline[(i * 2 + 1)]));
+		}
+		// constrained, so only the triangles inside the outline are kept
+		Triangulator triangulator = new Triangulator(points, true);
+		if (seeds != null) {
+			ArrayList<Vector2> inner = new ArrayList<Vector2>();
+			for (int i = 0; i < seeds.length / 2; i++) {
+				inner.add(new Vector2(seeds[(i * 2)], seeds[(i * 2 + 1)]));
+			}
+			triangulator.dynamicUpdatePoints(inner);
+		}
+		return triangulator;
+	}
+
+	/**
+	 * This method drops the triangulation object, if it isn't pinned. It is
+	 * rebuilt on the next use.
+	 * 
+	 * @return boolean true if it was dropped
+	 */
+	public boolean evict() {
+		if (pinned || triangulator == null) {
+			return false;
+		}
+		triangulator = null;
+		overlay = null;
+		overlayVersion = -1;
+		return true;
+	}
+
+	/**
+	 * This method clears the component before it is reused.
+	 */
+	@Override
+	public void reset() {
+		outline = null;
+		seeds = null;
+		depth = 0;
+		triangulator = null;
+		lastUsed = 0;
+		pinned = false;
+		overlay = null;
+		overlayVersion = -1;
 	}
 }
@@ -2,11 +2,12 @@ package com.shatter.component;
 
 import com.badlogic.ashley.core.Component;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool.Poolable;
 
-public class Gun implements Component {
+public class Gun implements Component, Poolable {
 	public float coolDown = 1.0F;
 	public float coolTime;
-	public Vector2 offset = new Vector2();
+	public final Vector2 offset = new Vector2();
 	
 	public void setCoolDown(float coolDown) {
 		this.coolDown = coolDown;
@@ -15,6 +16,12 @@ public class Gun implements Component {
 		this.coolTime = timeToCool;
 	}
 	public void setOffset(Vector2 offset) {
-		this.offset = offset;
+		this.offset.set(offset);
+	}
+	@Override
+	public void reset() {
+		coolDown = 1.0F;
+		coolTime = 0.0F;
+		offset.set(0.0f, 0.0f);
 	}
 }
@@ -0,0 +1,23 @@
+package com.shatter.component;
+
+import com.badlogic.ashley.core.Component;
+import com.badlogic.gdx.utils.Pool.Poolable;
+
+public class Lifetime implements Component, Poolable {
+	public float lifetime = 1.0F;
+	public long deadline;
+	public int slot = -1;
+	public int index;
+
+	public void setLifetime(float lifetime) {
+		this.lifetime = lifetime;
+	}
+
+	@Override
+	public void reset() {
+		lifetime = 1.0F;
+		deadline = 0;
+		slot = -1;
+		index = 0;
+	}
+}
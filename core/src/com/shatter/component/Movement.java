@@ -2,23 +2,31 @@ package com.shatter.component;
 
 import com.badlogic.ashley.core.Component;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool.Poolable;
 
-public class Movement implements Component {
-	public Vector2 vel = new Vector2();
+public class Movement implements Component, Poolable {
+	public final Vector2 vel = new Vector2();
 	public float angVel = 0.0f;
-	public Vector2 acc = new Vector2();
+	public final Vector2 acc = new Vector2();
 	public float damp = 0.0f;
 	
 	public void setVel(Vector2 vel) {
-		this.vel = vel;
+		this.vel.set(vel);
 	}
 	public void setAngVel(float angVel) {
 		this.angVel = angVel;
 	}
 	public void setAcc(Vector2 acc) {
-		this.acc = acc;
+		this.acc.set(acc);
 	}
 	public void setDamp(float damp) {
 		this.damp = damp;
 	}
+	@Override
+	public void reset() {
+		vel.set(0.0f, 0.0f);
+		angVel = 0.0f;
+		acc.set(0.0f, 0.0f);
+		damp = 0.0f;
+	}
 }
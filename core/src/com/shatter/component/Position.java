@@ -2,15 +2,35 @@ package com.shatter.component;
 
 import com.badlogic.ashley.core.Component;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool.Poolable;
 
-public class Position implements Component{
-	public Vector2 pos = new Vector2();
+public class Position implements Component, Poolable {
+	public final Vector2 pos = new Vector2();
 	public float angle = 0.0f;
+	public final Vector2 prevPos = new Vector2();
+	public float prevAngle = 0.0f;
 	
 	public void setPos(Vector2 pos) {
-		this.pos = pos;
+		this.pos.set(pos);
+		this.prevPos.set(pos);
+	}
+	public void setPos(float x, float y) {
+		this.pos.set(x, y);
+		this.prevPos.set(x, y);
 	}
 	public void setAngle(float angle) {
 		this.angle = angle;
+		this.prevAngle = angle;
+	}
+	public void storePrevious() {
+		prevPos.set(pos);
+		prevAngle = angle;
+	}
+	@Override
+	public void reset() {
+		pos.set(0.0f, 0.0f);
+		angle = 0.0f;
+		prevPos.set(0.0f, 0.0f);
+		prevAngle = 0.0f;
 	}
 }
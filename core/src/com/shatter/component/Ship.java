@@ -1,8 +1,9 @@
 package com.shatter.component;
 
 import com.badlogic.ashley.core.Component;
+import com.badlogic.gdx.utils.Pool.Poolable;
 
-public class Ship implements Component {
+public class Ship implements Component, Poolable {
 	public float SPEED = 15.0f;
 	public float ROT_SPEED = 5.0f;
 	
@@ -12,4 +13,9 @@ public class Ship implements Component {
 	public void setROT_SPEED(float rs) {
 		this.ROT_SPEED = rs;
 	}
+	@Override
+	public void reset() {
+		SPEED = 15.0f;
+		ROT_SPEED = 5.0f;
+	}
 }
\ No newline at end of file
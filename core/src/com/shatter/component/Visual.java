@@ -3,16 +3,23 @@ package com.shatter.component;
 
 import com.badlogic.ashley.core.Component;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Pool.Poolable;
 
-public class Visual implements Component{
-	public float[] VERTICES = { 0.0f, 1.0f, -1.0f, -1.0f, 0.0f,-0.7f, 1.0f, -1.0f };
-	public Color COLOR = Color.ORANGE;
+public class Visual implements Component, Poolable {
+	public static final float[] SHIP_VERTICES = { 0.0f, 1.0f, -1.0f, -1.0f, 0.0f,-0.7f, 1.0f, -1.0f };
+	public float[] VERTICES = SHIP_VERTICES;
+	public final Color COLOR = new Color(Color.ORANGE);
 	
 	public void setVERTICES(float[] v) {
 		this.VERTICES = v;
 	}
 	public void setCOLOR(Color c) {
-		this.COLOR = c;
+		this.COLOR.set(c);
+	}
+	@Override
+	public void reset() {
+		VERTICES = SHIP_VERTICES;
+		COLOR.set(Color.ORANGE);
 	}
 	
 }
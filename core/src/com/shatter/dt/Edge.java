@@ -34,6 +34,20 @@ public class Edge {
 		this.b = b;
 	}
 
+	/**
+	 * This method sets both edge points, used to reuse the edges of a
+	 * triangulation context.
+	 * 
+	 * @param a
+	 *            Vector2 of A
+	 * @param b
+	 *            Vector2 of B
+	 */
+	void set(Vector2 a, Vector2 b) {
+		this.a = a;
+		this.b = b;
+	}
+
 	/**
 	 * This method compares two edges to determine if they are equal/duplicates.
 	 * 
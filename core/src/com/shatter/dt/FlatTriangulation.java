@@ -0,0 +1,192 @@
+package com.shatter.dt;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * This class represents a triangulation snapshot in flat arrays: all triangle
+ * vertices in one float array, all voronoi cell vertices in another one, a
+ * table with the offset and length of every cell and the site every cell
+ * belongs to. Rendering, fragment spawning and serialization can read these
+ * arrays directly without converting triangles or cells one by one. The arrays
+ * are shared and must not be changed.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public final class FlatTriangulation {
+
+	/**
+	 * The triangle vertices, six floats (x and y of a, b and c) per triangle.
+	 */
+	private final float[] triangleVertices;
+
+	/**
+	 * The cell vertices, x and y per vertex, all cells one after another.
+	 */
+	private final float[] cellVertices;
+
+	/**
+	 * The cell table, offset and length (both in floats) into cellVertices
+	 * per cell.
+	 */
+	private final int[] cellTable;
+
+	/**
+	 * The sites of the cells, x and y per cell, NaN if a cell has none.
+	 */
+	private final float[] cellSites;
+
+	/**
+	 * The constructor for the flat triangulation, fills the arrays out of the
+	 * triangle and cell lists of a snapshot.
+	 * 
+	 * @param triangles
+	 *            The triangles.
+	 * @param cells
+	 *            The voronoi cells.
+	 * @param points
+	 *            The points the cells belong to, in the same order.
+	 */
+	FlatTriangulation(List<Triangle> triangles, List<float[]> cells, List<Vector2> points) {
+		triangleVertices = new float[triangles.size() * 6];
+		for (int i = 0; i < triangles.size(); i++) {
+			Triangle t = triangles.get(i);
+			triangleVertices[i * 6] = t.getA().x;
+			triangleVertices[i * 6 + 1] = t.getA().y;
+			triangleVertices[i * 6 + 2] = t.getB().x;
+			triangleVertices[i * 6 + 3] = t.getB().y;
+			triangleVertices[i * 6 + 4] = t.getC().x;
+			triangleVertices[i * 6 + 5] = t.getC().y;
+		}
+
+		int size = 0;
+		for (int i = 0; i < cells.size(); i++) {
+			size += cells.get(i).length;
+		}
+		cellVertices = new float[size];
+		cellTable = new int[cells.size() * 2];
+		int offset = 0;
+		for (int i = 0; i < cells.size(); i++) {
+			float[] cell = cells.get(i);
+			System.arraycopy(cell, 0, cellVertices, offset, cell.length);
+			cellTable[i * 2] = offset;
+			cellTable[i * 2 + 1] = cell.length;
+			offset += cell.length;
+		}
+
+		cellSites = new float[cells.size() * 2];
+		for (int i = 0; i < cells.size(); i++) {
+			cellSites[i * 2] = points.get(i).x;
+			cellSites[i * 2 + 1] = points.get(i).y;
+		}
+	}
+
+	/**
+	 * The constructor for a flat triangulation out of existing arrays, e.g.
+	 * loaded ones.
+	 * 
+	 * @param triangleVertices
+	 *            The triangle vertices, six floats per triangle.
+	 * @param cellVertices
+	 *            The cell vertices.
+	 * @param cellTable
+	 *            The cell offsets and lengths.
+	 * @param cellSites
+	 *            The cell sites, NaN for cells without one.
+	 */
+	public FlatTriangulation(float[] triangleVertices, float[] cellVertices, int[] cellTable, float[] cellSites) {
+		this.triangleVertices = triangleVertices;
+		this.cellVertices = cellVertices;
+		this.cellTable = cellTable;
+		this.cellSites = cellSites;
+	}
+
+	/**
+	 * Getter of the triangle vertices.
+	 * 
+	 * @return float[] six floats per triangle
+	 */
+	public float[] getTriangleVertices() {
+		return triangleVertices;
+	}
+
+	/**
+	 * Getter of the number of triangles.
+	 * 
+	 * @return int the triangle count
+	 */
+	public int getTriangleCount() {
+		return triangleVertices.length / 6;
+	}
+
+	/**
+	 * Getter of the cell vertices of all cells.
+	 * 
+	 * @return float[] the cell vertices
+	 */
+	public float[] getCellVertices() {
+		return cellVertices;
+	}
+
+	/**
+	 * Getter of the cell vertices as read only buffer, without copying them.
+	 * 
+	 * @return FloatBuffer the cell vertices
+	 */
+	public FloatBuffer getCellBuffer() {
+		return FloatBuffer.wrap(cellVertices).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Getter of the cell table.
+	 * 
+	 * @return int[] offset and length in floats per cell
+	 */
+	public int[] getCellTable() {
+		return cellTable;
+	}
+
+	/**
+	 * Getter of the cell sites.
+	 * 
+	 * @return float[] x and y per cell, NaN if a cell has no site
+	 */
+	public float[] getCellSites() {
+		return cellSites;
+	}
+
+	/**
+	 * Getter of the number of cells.
+	 * 
+	 * @return int the cell count
+	 */
+	public int getCellCount() {
+		return cellTable.length / 2;
+	}
+
+	/**
+	 * Getter of the offset of a cell in the cell vertices.
+	 * 
+	 * @param cell
+	 *            The index of the cell.
+	 * @return int the offset in floats
+	 */
+	public int getCellOffset(int cell) {
+		return cellTable[cell * 2];
+	}
+
+	/**
+	 * Getter of the length of a cell in the cell vertices.
+	 * 
+	 * @param cell
+	 *            The index of the cell.
+	 * @return int the length in floats
+	 */
+	public int getCellLength(int cell) {
+		return cellTable[cell * 2 + 1];
+	}
+
+}
@@ -0,0 +1,220 @@
+package com.shatter.dt;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * This class represents a list that is stored in chunks of 32 elements, so
+ * its state can be shared with a copy instead of copying all elements. The
+ * chunks are held by blocks of 32 chunks. share() hands out an unmodifiable
+ * copy that only gets a new table of the blocks, the blocks and chunks
+ * themselves are copied by the working list the first time it writes them
+ * afterwards. An update that changes a few elements therefore only copies a
+ * few blocks and chunks, the unchanged ones stay shared by all copies, and
+ * the table of a copy only grows by one reference per 1024 elements.
+ * 
+ * Elements are removed by moving the last element into their place, so
+ * removing doesn't shift (and copy) all chunks behind the element.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+final class SharedList<T> extends AbstractList<T> implements RandomAccess {
+
+	/**
+	 * The shift of an index to its chunk.
+	 */
+	private static final int SHIFT = 5;
+
+	/**
+	 * The number of elements per chunk.
+	 */
+	private static final int CHUNK = 1 << SHIFT;
+
+	/**
+	 * The shift of a chunk to its block.
+	 */
+	private static final int BLOCK_SHIFT = 5;
+
+	/**
+	 * The number of chunks per block.
+	 */
+	private static final int BLOCK = 1 << BLOCK_SHIFT;
+
+	/**
+	 * The blocks of chunks, the ones behind the last element are null.
+	 */
+	private Object[][][] blocks;
+
+	/**
+	 * The flags of the blocks only this list uses, null if the list is an
+	 * unmodifiable copy.
+	 */
+	private boolean[] ownedBlocks;
+
+	/**
+	 * The flags of the chunks only this list uses, by chunk number, null if
+	 * the list is an unmodifiable copy.
+	 */
+	private boolean[] owned;
+
+	/**
+	 * The number of elements.
+	 */
+	private int size;
+
+	/**
+	 * The constructor for an empty working list.
+	 */
+	SharedList() {
+		this.blocks = new Object[1][][];
+		this.ownedBlocks = new boolean[1];
+		this.owned = new boolean[BLOCK];
+	}
+
+	/**
+	 * The constructor for an unmodifiable copy.
+	 * 
+	 * @param blocks
+	 *            The shared blocks.
+	 * @param size
+	 *            The number of elements.
+	 */
+	private SharedList(Object[][][] blocks, int size) {
+		this.blocks = blocks;
+		this.size = size;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+		}
+		return (T) blocks[index >> (SHIFT + BLOCK_SHIFT)][(index >> SHIFT) & (BLOCK - 1)][index & (CHUNK - 1)];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public T set(int index, T element) {
+		T previous = get(index);
+		if (previous != element) {
+			writable(index >> SHIFT)[index & (CHUNK - 1)] = element;
+		}
+		return previous;
+	}
+
+	@Override
+	public boolean add(T element) {
+		if (owned == null) {
+			throw new UnsupportedOperationException();
+		}
+		int chunk = size >> SHIFT;
+		int block = chunk >> BLOCK_SHIFT;
+		if (block == blocks.length) {
+			blocks = Arrays.copyOf(blocks, block * 2);
+			ownedBlocks = Arrays.copyOf(ownedBlocks, block * 2);
+			owned = Arrays.copyOf(owned, block * 2 * BLOCK);
+		}
+		if (blocks[block] == null) {
+			blocks[block] = new Object[BLOCK][];
+			ownedBlocks[block] = true;
+		}
+		if (blocks[block][chunk & (BLOCK - 1)] == null) {
+			writableBlock(block)[chunk & (BLOCK - 1)] = new Object[CHUNK];
+			owned[chunk] = true;
+		}
+		writable(chunk)[size & (CHUNK - 1)] = element;
+		size++;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * This method removes an element by moving the last element into its
+	 * place.
+	 * 
+	 * @param index
+	 *            The index of the element.
+	 * @return T the removed element
+	 */
+	T swapRemove(int index) {
+		T removed = get(index);
+		int last = size - 1;
+		if (index != last) {
+			set(index, get(last));
+		}
+		writable(last >> SHIFT)[last & (CHUNK - 1)] = null;
+		size--;
+		modCount++;
+		return removed;
+	}
+
+	@Override
+	public void clear() {
+		if (owned == null) {
+			throw new UnsupportedOperationException();
+		}
+		blocks = new Object[blocks.length][][];
+		Arrays.fill(ownedBlocks, false);
+		Arrays.fill(owned, false);
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * This method hands out an unmodifiable copy of the current elements. It
+	 * shares all blocks and chunks with this list, which copies them before
+	 * it changes them again.
+	 * 
+	 * @return SharedList<T> the copy
+	 */
+	SharedList<T> share() {
+		Object[][][] table = new Object[(size + (CHUNK << BLOCK_SHIFT) - 1) >> (SHIFT + BLOCK_SHIFT)][][];
+		System.arraycopy(blocks, 0, table, 0, table.length);
+		Arrays.fill(ownedBlocks, false);
+		Arrays.fill(owned, false);
+		return new SharedList<T>(table, size);
+	}
+
+	/**
+	 * This method gets a block for writing, copying it first if it is shared.
+	 * 
+	 * @param block
+	 *            The index of the block.
+	 * @return Object[][] the block
+	 */
+	private Object[][] writableBlock(int block) {
+		if (owned == null) {
+			throw new UnsupportedOperationException();
+		}
+		if (!ownedBlocks[block]) {
+			blocks[block] = blocks[block].clone();
+			ownedBlocks[block] = true;
+		}
+		return blocks[block];
+	}
+
+	/**
+	 * This method gets a chunk for writing, copying it and its block first if
+	 * they are shared.
+	 * 
+	 * @param chunk
+	 *            The index of the chunk.
+	 * @return Object[] the chunk
+	 */
+	private Object[] writable(int chunk) {
+		Object[][] block = writableBlock(chunk >> BLOCK_SHIFT);
+		if (!owned[chunk]) {
+			block[chunk & (BLOCK - 1)] = block[chunk & (BLOCK - 1)].clone();
+			owned[chunk] = true;
+		}
+		return block[chunk & (BLOCK - 1)];
+	}
+
+}
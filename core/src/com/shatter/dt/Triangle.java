@@ -4,7 +4,10 @@ import com.badlogic.gdx.math.Vector2;
 
 /**
  * This class represents a triangle in the triangulation. It has different
- * methods which are used in the triangulation algorithm.
+ * methods which are used in the triangulation algorithm. A triangle never
+ * changes once it is part of a triangulation, so it can be shared with the
+ * published snapshots, the state of the algorithm is kept by the
+ * triangulator.
  * 
  * @author Julia Angerer
  * @version 1.0
@@ -36,24 +39,13 @@ public class Triangle {
 	 */
 	private Vector2 ccCenter;
 	
-	/**
-	 * The triangle midpoints.
-	 */
-	private Vector2[] midPoints = null;
-
-	/**
-	 * The triangle complete flag.
-	 */
-	private boolean complete;
-
 	/**
 	 * Epsilon, used for calculating the circumcircle.
 	 */
 	private static double EPSILON = 1.0e-6;
 
 	/**
-	 * The constructor for the triangle, calculates the circumcircle already and
-	 * sets the complete flag as false.
+	 * The constructor for the triangle, calculates the circumcircle already.
 	 * 
 	 * @param a
 	 *            Vector2 of A
@@ -66,7 +58,25 @@ public class Triangle {
 		this.a = a;
 		this.b = b;
 		this.c = c;
-		this.complete = false;
+		this.calcCircumCircle();
+	}
+
+	/**
+	 * This method sets all points and recalculates the circumcircle. It's
+	 * only used for the temporary triangle of a triangulation context, the
+	 * triangles of a triangulation never change.
+	 * 
+	 * @param a
+	 *            Vector2 of A
+	 * @param b
+	 *            Vector2 of B
+	 * @param c
+	 *            Vector2 of C
+	 */
+	void set(Vector2 a, Vector2 b, Vector2 c) {
+		this.a = a;
+		this.b = b;
+		this.c = c;
 		this.calcCircumCircle();
 	}
 
@@ -75,7 +85,7 @@ public class Triangle {
 	 * constructing this method:
 	 * https://en.wikipedia.org/wiki/Circumscribed_circle
 	 */
-	public void calcCircumCircle() {
+	private void calcCircumCircle() {
 		float A = this.b.x - this.a.x;
 		float B = this.b.y - this.a.y;
 		float C = this.c.x - this.a.x;
@@ -100,7 +110,7 @@ public class Triangle {
 			float maxy = Math.max(this.a.y, this.b.y);
 			maxy = Math.min(maxy, this.c.y);
 
-			ccCenter = new Vector2((minx + maxx) / 2, (miny + maxy) / 2);
+			setCcCenter((minx + maxx) / 2, (miny + maxy) / 2);
 			dx = ccCenter.x - minx;
 			dy = ccCenter.y - miny;
 
@@ -109,7 +119,7 @@ public class Triangle {
 			float cx = (D * E - B * F) / G;
 			float cy = (A * F - C * E) / G;
 
-			ccCenter = new Vector2(cx, cy);
+			setCcCenter(cx, cy);
 			dx = ccCenter.x - this.a.x;
 			dy = ccCenter.y - this.a.y;
 		}
@@ -117,6 +127,23 @@ public class Triangle {
 		this.ccRadiusSquared = dx * dx + dy * dy;
 	}
 
+	/**
+	 * This method sets the circumcircle center, reusing the vector if there
+	 * is one already.
+	 * 
+	 * @param x
+	 *            The center x value.
+	 * @param y
+	 *            The center y value.
+	 */
+	private void setCcCenter(float x, float y) {
+		if (ccCenter == null) {
+			ccCenter = new Vector2(x, y);
+		} else {
+			ccCenter.set(x, y);
+		}
+	}
+
 	/**
 	 * This method checks if a point is in the Circumcirlce of the Triangle.
 	 * 
@@ -224,46 +251,4 @@ public class Triangle {
 		return ccCenter;
 	}
 
-	/**
-	 * Gets the 3 midpoints on the triangle sides.
-	 * 
-	 * @return Vector2[] midpoints
-	 */
-	public void calcMidPoints() {
-		this.midPoints = new Vector2[] { new Vector2((a.x + b.x) / 2, (a.y + b.y) / 2),
-				new Vector2((b.x + c.x) / 2, (b.y + c.y) / 2), new Vector2((c.x + a.x) / 2, (c.y + a.y) / 2) };
-	}
-
-	/**
-	 * Getter of the midPoints.
-	 * 
-	 * @return Vector2[] the midPoints
-	 */
-	public Vector2[] getMidPoints() {
-		return midPoints;
-	}
-
-	/**
-	 * Flags the triangle as complete.
-	 */
-	public void flagCompleted() {
-		this.complete = true;
-	}
-
-	/**
-	 * Flags the triangle incomplete again.
-	 */
-	public void resetCompleted() {
-		this.complete = false;
-	}
-
-	/**
-	 * Gets the current complete flag.
-	 * 
-	 * @return boolean the flag
-	 */
-	public boolean isComplete() {
-		return complete;
-	}
-
 }
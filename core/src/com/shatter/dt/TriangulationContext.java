@@ -0,0 +1,167 @@
+package com.shatter.dt;
+
+import java.util.ArrayList;
+
+import com.badlogic.gdx.math.ConvexHull;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BooleanArray;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.ObjectSet;
+
+/**
+ * This class holds the reusable scratch buffers of the triangulation
+ * algorithm. The buffers only grow, so once they are large enough for the
+ * biggest cavity, star or cell, adding and removing points doesn't allocate
+ * any temporary objects anymore. The edges are handed out from an arena that
+ * is rewound with every reset.
+ * 
+ * A context is not thread-safe. Triangulators that are not given a context
+ * use the one of the current thread.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class TriangulationContext {
+
+	/**
+	 * The contexts of the threads.
+	 */
+	private static final ThreadLocal<TriangulationContext> LOCAL = new ThreadLocal<TriangulationContext>() {
+		@Override
+		protected TriangulationContext initialValue() {
+			return new TriangulationContext();
+		}
+	};
+
+	/**
+	 * The edge arena, all edges up to edgesUsed are in use.
+	 */
+	private final Array<Edge> edges = new Array<Edge>(false, 64, Edge.class);
+
+	/**
+	 * The number of arena edges in use.
+	 */
+	private int edgesUsed;
+
+	/**
+	 * The edge buffer of the cavity and hole boundaries.
+	 */
+	final ArrayList<Edge> edgeBuffer = new ArrayList<Edge>();
+
+	/**
+	 * The duplicate flags of the edge buffer.
+	 */
+	final BooleanArray duplicates = new BooleanArray();
+
+	/**
+	 * The interior flags of the cavity boundary edges, the side of the
+	 * outline the new triangles are on.
+	 */
+	final BooleanArray sides = new BooleanArray();
+
+	/**
+	 * The triangle buffer of cavities, stars and flood fills.
+	 */
+	final ArrayList<Triangle> triangles = new ArrayList<Triangle>();
+
+	/**
+	 * The triangles marked by a flood fill.
+	 */
+	final ObjectSet<Triangle> marks = new ObjectSet<Triangle>();
+
+	/**
+	 * The triangle buffer used for clipping a voronoi cell.
+	 */
+	final ArrayList<Triangle> innerTriangles = new ArrayList<Triangle>();
+
+	/**
+	 * The hole polygon of a point removal.
+	 */
+	final ArrayList<Vector2> polygon = new ArrayList<Vector2>();
+
+	/**
+	 * The link vertices of a point removal.
+	 */
+	final ArrayList<Vector2> link = new ArrayList<Vector2>();
+
+	/**
+	 * The angles of the hole polygon vertices.
+	 */
+	final FloatArray angles = new FloatArray();
+
+	/**
+	 * The vertices of the voronoi cell under construction.
+	 */
+	final FloatArray vertices = new FloatArray();
+
+	/**
+	 * The convex hull calculator.
+	 */
+	final ConvexHull hull = new ConvexHull();
+
+	/**
+	 * A temporary point.
+	 */
+	final Vector2 point = new Vector2();
+
+	/**
+	 * A temporary triangle for circumcircle tests.
+	 */
+	final Triangle circle = new Triangle(new Vector2(), new Vector2(1f, 0f), new Vector2(0f, 1f));
+
+	/**
+	 * A temporary edge for lookups.
+	 */
+	final Edge probe = new Edge(null, null);
+
+	/**
+	 * Gets the context of the current thread.
+	 * 
+	 * @return TriangulationContext the context
+	 */
+	public static TriangulationContext local() {
+		return LOCAL.get();
+	}
+
+	/**
+	 * This method hands out an edge from the arena. The edge stays valid
+	 * until the next reset.
+	 * 
+	 * @param a
+	 *            Vector2 of A
+	 * @param b
+	 *            Vector2 of B
+	 * @return Edge the edge
+	 */
+	Edge obtainEdge(Vector2 a, Vector2 b) {
+		if (edgesUsed == edges.size) {
+			edges.add(new Edge(a, b));
+		}
+		Edge e = edges.get(edgesUsed++);
+		e.set(a, b);
+		return e;
+	}
+
+	/**
+	 * This method rewinds the edge arena and clears all buffers, keeping
+	 * their capacity.
+	 */
+	public void reset() {
+		for (int i = 0; i < edgesUsed; i++) {
+			edges.get(i).set(null, null);
+		}
+		edgesUsed = 0;
+		edgeBuffer.clear();
+		duplicates.clear();
+		sides.clear();
+		triangles.clear();
+		marks.clear();
+		innerTriangles.clear();
+		polygon.clear();
+		link.clear();
+		angles.clear();
+		vertices.clear();
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.shatter.dt;
+
+import java.util.List;
+
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * This class represents an immutable, versioned state of a triangulation and
+ * its voronoi diagram. The triangulator publishes a new snapshot with a single
+ * atomic swap after every change, so any thread can read a consistent mesh
+ * without locking. The triangles, points and cell arrays are shared between
+ * snapshots and never changed after they are published. The lists share
+ * their chunks with the triangulator, which copies a chunk before it
+ * changes it, so publishing only copies what the update touched.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public final class TriangulationSnapshot {
+
+	/**
+	 * The version, increased with every published change.
+	 */
+	private final long version;
+
+	/**
+	 * The triangles inside the outline.
+	 */
+	private final List<Triangle> triangles;
+
+	/**
+	 * The triangulated points, in the same order as the cells.
+	 */
+	private final List<Vector2> points;
+
+	/**
+	 * The voronoi cells as vertex arrays.
+	 */
+	private final List<float[]> cells;
+
+	/**
+	 * The flat arrays of this snapshot, built on first use.
+	 */
+	private volatile FlatTriangulation flat;
+
+	/**
+	 * The constructor for the snapshot.
+	 * 
+	 * @param version
+	 *            The version of the snapshot.
+	 * @param triangles
+	 *            The unmodifiable triangle list.
+	 * @param points
+	 *            The unmodifiable point list.
+	 * @param cells
+	 *            The unmodifiable cell list.
+	 */
+	TriangulationSnapshot(long version, List<Triangle> triangles, List<Vector2> points, List<float[]> cells) {
+		this.version = version;
+		this.triangles = triangles;
+		this.points = points;
+		this.cells = cells;
+	}
+
+	/**
+	 * Getter of the version.
+	 * 
+	 * @return long version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Getter for the delaunay triangulation.
+	 * 
+	 * @return List<Triangle> the DT
+	 */
+	public List<Triangle> getTriangles() {
+		return triangles;
+	}
+
+	/**
+	 * Getter for the triangulated points.
+	 * 
+	 * @return List<Vector2> the points
+	 */
+	public List<Vector2> getPoints() {
+		return points;
+	}
+
+	/**
+	 * Getter for the voronoi diagram.
+	 * 
+	 * @return List<float[]> the VD
+	 */
+	public List<float[]> getCells() {
+		return cells;
+	}
+
+	/**
+	 * Getter for the triangulation and voronoi diagram as flat arrays. They
+	 * are built once per snapshot, so reading them every frame doesn't
+	 * allocate.
+	 * 
+	 * @return FlatTriangulation the flat arrays
+	 */
+	public FlatTriangulation getFlat() {
+		FlatTriangulation result = flat;
+		if (result == null) {
+			// building it twice on a race is harmless, both are equal
+			result = new FlatTriangulation(triangles, cells, points);
+			flat = result;
+		}
+		return result;
+	}
+
+}
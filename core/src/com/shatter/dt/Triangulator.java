@@ -2,9 +2,16 @@ package com.shatter.dt;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
-import com.badlogic.gdx.math.ConvexHull;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BooleanArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
 
 /**
  * This class constructs a delaunay triangulation of a given 2D mesh outline,
@@ -13,6 +20,11 @@ import com.badlogic.gdx.math.Vector2;
  * A voronoi diagram can be generated out of this triangulation, clipped to the
  * 2D point set given.
  * 
+ * In constrained mode the outline edges are inserted as fixed segments
+ * (constrained delaunay triangulation), the triangles inside the outline are
+ * classified by a flood fill and the voronoi cells are built from these
+ * interior triangles only, so no point in polygon clipping is needed.
+ * 
  * References used constructing the main algorithm implementation:
  * > https://takisword.wordpress.com/2009/08/13/bowyerwatson-algorithm/
  * > https://en.wikipedia.org/wiki/Bowyer%E2%80%93Watson_algorithm
@@ -30,10 +42,15 @@ public class Triangulator {
 	private ArrayList<Vector2> outlinePoints;
 
 	/**
-	 * All points to be triangulated, will be sorted for the first triangulation
-	 * by x values.
+	 * All points to be triangulated, sorted by x values for the first
+	 * triangulation, the points added later are appended.
+	 */
+	private SharedList<Vector2> allPoints;
+
+	/**
+	 * The index of every point in allPoints.
 	 */
-	private ArrayList<Vector2> allPoints;
+	private ObjectIntMap<Vector2> pointIndex = new ObjectIntMap<Vector2>();
 
 	/**
 	 * The supertriangle for the given point set.
@@ -47,14 +64,49 @@ public class Triangulator {
 
 	/**
 	 * The list of all triangles that share a point with the polygon outline,
-	 * excluding all the supertriangle triangles.
+	 * excluding all the supertriangle triangles. In constrained mode only the
+	 * triangles inside the outline.
+	 */
+	private SharedList<Triangle> dTriangles;
+
+	/**
+	 * The index of every triangle in dTriangles.
+	 */
+	private ObjectIntMap<Triangle> innerIndex = new ObjectIntMap<Triangle>();
+
+	/**
+	 * The triangles whose circumcircle is left of the point inserted last, no
+	 * later point of an x-sorted insertion can reach them anymore.
+	 */
+	private ObjectSet<Triangle> completed = new ObjectSet<Triangle>();
+
+	/**
+	 * The triangles (including the supertriangle ones) incident to each
+	 * vertex, used for local updates like the removal of a point.
+	 */
+	private ObjectMap<Vector2, ArrayList<Triangle>> vertexTriangles;
+
+	/**
+	 * The incidence lists of removed vertices, reused for new ones.
+	 */
+	private Array<ArrayList<Triangle>> freeIncidence = new Array<ArrayList<Triangle>>();
+
+	/**
+	 * The list of Voronoi diagram cells, in the same order as allPoints.
+	 */
+	private SharedList<float[]> vDiagram;
+
+	/**
+	 * The vertices whose incident triangles changed since their cells were
+	 * built.
 	 */
-	private ArrayList<Triangle> dTriangles;
+	private ObjectSet<Vector2> dirty = new ObjectSet<Vector2>();
 
 	/**
-	 * The list of Voronoi diagram cells.
+	 * The number of cells that are final, less than the number of points
+	 * during a stepwise update.
 	 */
-	private ArrayList<float[]> vDiagram;
+	private int cellCount;
 
 	/**
 	 * The extremes of the outlinePoints.
@@ -67,52 +119,233 @@ public class Triangulator {
 	private XAxisComparator comparator;
 
 	/**
-	 * Getter for the delaunay triangulation.
+	 * The constrained mode flag.
+	 */
+	private boolean constrained;
+
+	/**
+	 * The outline edges that are fixed segments in constrained mode.
+	 */
+	private HashSet<Edge> constraints;
+
+	/**
+	 * The outline in constrained mode including the points added on its
+	 * edges, in outline order.
+	 */
+	private ArrayList<Vector2> boundary;
+
+	/**
+	 * Epsilon, the distance to a segment relative to its length below which a
+	 * point counts as lying on it.
+	 */
+	private static final float ON_SEGMENT = 1.0e-5f;
+
+	/**
+	 * The latest published state of the triangulation.
+	 */
+	private final AtomicReference<TriangulationSnapshot> snapshot = new AtomicReference<TriangulationSnapshot>();
+
+	/**
+	 * The version of the next published snapshot.
+	 */
+	private long version;
+
+	/**
+	 * The scratch buffers to use, null to use the ones of the current thread.
+	 */
+	private TriangulationContext context;
+
+	/**
+	 * The points of the running stepwise update, null if there is none.
+	 */
+	private ArrayList<Vector2> updatePoints;
+
+	/**
+	 * The index of the next point of the running update to insert.
+	 */
+	private int updateIndex;
+
+	/**
+	 * The changed flag of the running update, true if a point was added and
+	 * the voronoi diagram has to be rebuilt.
+	 */
+	private boolean updateChanged;
+
+	/**
+	 * Getter for the delaunay triangulation. This is the working list of the
+	 * updating thread, other threads have to use getSnapshot().
 	 * 
-	 * @return ArrayList<Triangle> the DT
+	 * @return List<Triangle> the DT
 	 */
-	public ArrayList<Triangle> getDTriangles() {
+	public List<Triangle> getDTriangles() {
 		return dTriangles;
 	}
 
 	/**
-	 * Getter for the voronoi diagram.
+	 * Getter for the voronoi diagram. This is the working list of the
+	 * updating thread, other threads have to use getSnapshot().
 	 * 
-	 * @return ArrayList<float[]> the VD
+	 * @return List<float[]> the VD
 	 */
-	public ArrayList<float[]> getVDiagram() {
+	public List<float[]> getVDiagram() {
 		return vDiagram;
 	}
 
+	/**
+	 * Getter for the triangulated points, in the same order as the voronoi
+	 * diagram. This is the working list of the updating thread, other threads
+	 * have to use getSnapshot().
+	 * 
+	 * @return List<Vector2> the points
+	 */
+	public List<Vector2> getPoints() {
+		return allPoints;
+	}
+
+	/**
+	 * Getter for the outline in constrained mode, including the points that
+	 * split its edges. This is the working list of the updating thread.
+	 * 
+	 * @return List<Vector2> the outline vertices in outline order
+	 */
+	public List<Vector2> getBoundary() {
+		return boundary;
+	}
+
+	/**
+	 * Getter for the triangles incident to a vertex, including the ones of
+	 * the supertriangle and, in constrained mode, the ones outside the
+	 * outline (see isInterior()). This is the working list of the
+	 * updating thread.
+	 * 
+	 * @param vertex
+	 *            The vertex.
+	 * @return ArrayList<Triangle> the triangles or null if the vertex isn't
+	 *         triangulated
+	 */
+	public ArrayList<Triangle> getIncidentTriangles(Vector2 vertex) {
+		return vertexTriangles.get(vertex);
+	}
+
+	/**
+	 * Getter for the latest published, immutable state of the triangulation,
+	 * safe to read from any thread.
+	 * 
+	 * @return TriangulationSnapshot the snapshot
+	 */
+	public TriangulationSnapshot getSnapshot() {
+		return snapshot.get();
+	}
+
+	/**
+	 * Checks if a triangle is part of the delaunay triangulation, in
+	 * constrained mode if it is inside the outline.
+	 * 
+	 * @param T
+	 *            The triangle.
+	 * @return boolean true if the triangle is in getDTriangles()
+	 */
+	public boolean isInterior(Triangle T) {
+		return innerIndex.containsKey(T);
+	}
+
 	/**
 	 * The constructor for the Triangulator.
 	 * 
 	 * @param points
 	 *            The set of points given.
 	 */
-	@SuppressWarnings("unchecked")
 	public Triangulator(ArrayList<Vector2> outlinePoints) {
+		this(outlinePoints, false);
+	}
+
+	/**
+	 * The constructor for the Triangulator, optionally in constrained mode.
+	 * 
+	 * @param points
+	 *            The set of points given, in outline order.
+	 * @param constrained
+	 *            true if the outline edges should be fixed segments
+	 */
+	public Triangulator(ArrayList<Vector2> outlinePoints, boolean constrained) {
+		this(outlinePoints, constrained, null);
+	}
+
+	/**
+	 * The constructor for the Triangulator with its own scratch buffers.
+	 * 
+	 * @param points
+	 *            The set of points given, in outline order.
+	 * @param constrained
+	 *            true if the outline edges should be fixed segments
+	 * @param context
+	 *            The scratch buffers to reuse, null to use the ones of the
+	 *            current thread.
+	 */
+	@SuppressWarnings("unchecked")
+	public Triangulator(ArrayList<Vector2> outlinePoints, boolean constrained, TriangulationContext context) {
 		// save the outline points
 		this.outlinePoints = outlinePoints;
+		this.constrained = constrained;
+		this.context = context;
 
 		// sort the points on x-axis
-		this.allPoints = (ArrayList<Vector2>) outlinePoints.clone();
+		ArrayList<Vector2> sorted = (ArrayList<Vector2>) outlinePoints.clone();
 		this.comparator = new XAxisComparator();
-		Collections.sort(allPoints, comparator);
+		Collections.sort(sorted, comparator);
+		this.allPoints = new SharedList<Vector2>();
+		for (Vector2 point : sorted) {
+			pointIndex.put(point, allPoints.size());
+			allPoints.add(point);
+		}
 
 		// save the outline extremes
 		this.extremes = getMinMax(outlinePoints);
 		
 		//initialize the voronoi region list
-		this.vDiagram = new ArrayList<float[]>();
+		this.vDiagram = new SharedList<float[]>();
 
 		// first calculation of DT and VD, exception handling
 		try {
 			getDT();
+			if (constrained) {
+				insertConstraints();
+				classifyTriangles();
+			}
 		} catch (NotEnoughPointsException e) {
 			e.printStackTrace();
 		}
 		getVD();
+		publish();
+	}
+
+	/**
+	 * This method publishes the current triangulation and voronoi diagram as
+	 * a new snapshot. The lists share their chunks with the working lists,
+	 * only the chunks changed by the next update are copied. The triangles
+	 * and cell arrays are never changed once they're part of the
+	 * triangulation.
+	 */
+	private void publish() {
+		snapshot.set(new TriangulationSnapshot(version++, dTriangles.share(), allPoints.share(), vDiagram.share()));
+	}
+
+	/**
+	 * This method gets the scratch buffers for the current operation.
+	 * 
+	 * @return TriangulationContext the context
+	 */
+	private TriangulationContext context() {
+		return context != null ? context : TriangulationContext.local();
+	}
+
+	/**
+	 * Getter for the constrained mode flag.
+	 * 
+	 * @return boolean true if the outline edges are fixed segments
+	 */
+	public boolean isConstrained() {
+		return constrained;
 	}
 
 	/**
@@ -157,7 +390,7 @@ public class Triangulator {
 	 *            The given points.
 	 * @return Triangle the SuperTriangle that contains all the points
 	 */
-	private Triangle getSuperTriangle(ArrayList<Vector2> points) {
+	private Triangle getSuperTriangle(List<Vector2> points) {
 
 		float xMin = extremes[0];
 		float yMin = extremes[1];
@@ -184,37 +417,30 @@ public class Triangulator {
 	 * The real delaunay triangulation calculation using Bowyer-Watson
 	 * incremental algorithm happens here.
 	 */
-	@SuppressWarnings("unchecked")
 	private void getDT() throws NotEnoughPointsException {
 
 		// throw exception if points < 3
 		if (allPoints.size() < 3)
 			throw new NotEnoughPointsException("There must be at least 3 points to triangulate!");
 
-		// triangle buffer, containing current valid triangles
-		dTriangles = new ArrayList<Triangle>();
+		// triangle buffer, containing current valid triangles including the
+		// supertriangle ones for computing the VD
+		dTrianglesAll = new ArrayList<Triangle>();
+		dTriangles = new SharedList<Triangle>();
+		vertexTriangles = new ObjectMap<Vector2, ArrayList<Triangle>>();
 
 		// add the superTriangle to the buffer
 		superT = getSuperTriangle(allPoints);
-		dTriangles.add(superT);
+		dTrianglesAll.add(superT);
+		linkTriangle(superT);
 
 		// for each point in the point set
 		for (Vector2 vertex : allPoints) {
 			// would be O(n^2) - optimized by sorting points along the x-axis
 			// and only cc check the triangles on the right = now O(n^1.5)
-			dTriangles = addPoint(vertex, dTriangles);
-		}
-
-		// save DT including superTriangle for computing the VD
-		dTrianglesAll = (ArrayList<Triangle>) dTriangles.clone();
-
-		// for displaying and clipping reasons:
-		// if triangle contains a vertex from superTriangle, remove triangle
-		for (int i = dTriangles.size() - 1; i >= 0; i--) {
-			if (dTriangles.get(i).containsPoint(superT)) {
-				dTriangles.remove(i);
-			}
+			dTrianglesAll = addPoint(vertex, dTrianglesAll);
 		}
+		completed.clear();
 	}
 
 	/**
@@ -230,7 +456,9 @@ public class Triangulator {
 
 		// edge buffer, contains the edges that will be re-added to new
 		// triangles
-		ArrayList<Edge> edgeBuffer = new ArrayList<Edge>();
+		TriangulationContext ctx = context();
+		ctx.reset();
+		ArrayList<Edge> edgeBuffer = ctx.edgeBuffer;
 
 		// iterate over all triangles (in reverse order because the size of the
 		// list is changed but not checked anymore)
@@ -243,41 +471,131 @@ public class Triangulator {
 
 			boolean inXReach = T.inXReach(point.x); // precalculate flag boolean
 
-			if (!T.isComplete() && inXReach) { // only do cc test if in reach
+			if (!completed.contains(T) && inXReach) { // only do cc test if in reach
 				if (T.inCC(point)) {
-					edgeBuffer.add(new Edge(T.getA(), T.getB()));
-					edgeBuffer.add(new Edge(T.getB(), T.getC()));
-					edgeBuffer.add(new Edge(T.getC(), T.getA()));
+					edgeBuffer.add(ctx.obtainEdge(T.getA(), T.getB()));
+					edgeBuffer.add(ctx.obtainEdge(T.getB(), T.getC()));
+					edgeBuffer.add(ctx.obtainEdge(T.getC(), T.getA()));
 					triangles.remove(j);
+					unlinkTriangle(T);
 				}
-			} else if (!inXReach) {
-				T.flagCompleted(); // if out of reach, flag as complete
+			} else if (!inXReach && T.getCcCenter().x < point.x) {
+				// if out of reach on the left, flag as complete - the points
+				// are added in ascending x order, so no later point can reach
+				// this circumcircle anymore
+				completed.add(T);
 			}
 
 		}
 
 		// remove the duplicate edges and keep only the unique ones
-		edgeBuffer = removeDuplicateEdges(edgeBuffer);
-
-		// now build new triangles from edgebuffer edges
-		for (Edge e : edgeBuffer) {
-			triangles.add(new Triangle(e.getA(), e.getB(), point));
+		removeDuplicateEdges(edgeBuffer, ctx.duplicates);
+
+		// now build new triangles from edgebuffer edges, for displaying and
+		// clipping reasons only the ones without a supertriangle vertex are
+		// part of the DT
+		for (int i = 0; i < edgeBuffer.size(); i++) {
+			Edge e = edgeBuffer.get(i);
+			Triangle T = new Triangle(e.getA(), e.getB(), point);
+			triangles.add(T);
+			linkTriangle(T);
+			if (!T.containsPoint(superT)) {
+				addInner(T);
+			}
 		}
 
 		return triangles;
 	}
 
 	/**
-	 * This method removes duplicate edges from an ArrayList.
+	 * This method registers a triangle in the vertex incidence map and marks
+	 * the cells of its vertices for rebuilding.
+	 * 
+	 * @param T
+	 *            The triangle that became part of the triangulation.
+	 */
+	private void linkTriangle(Triangle T) {
+		linkVertex(T.getA(), T);
+		linkVertex(T.getB(), T);
+		linkVertex(T.getC(), T);
+	}
+
+	/**
+	 * This method adds a triangle to the DT list.
+	 * 
+	 * @param T
+	 *            The triangle.
+	 */
+	private void addInner(Triangle T) {
+		innerIndex.put(T, dTriangles.size());
+		dTriangles.add(T);
+	}
+
+	/**
+	 * This method removes a triangle from the DT list, if it's contained. The
+	 * last triangle takes its place.
+	 * 
+	 * @param T
+	 *            The triangle.
+	 */
+	private void removeInner(Triangle T) {
+		int index = innerIndex.remove(T, -1);
+		if (index < 0) {
+			return;
+		}
+		dTriangles.swapRemove(index);
+		if (index < dTriangles.size()) {
+			innerIndex.put(dTriangles.get(index), index);
+		}
+	}
+
+	/**
+	 * This method adds a triangle to the incidence list of one vertex.
+	 * 
+	 * @param vertex
+	 *            The vertex of the triangle.
+	 * @param T
+	 *            The triangle.
+	 */
+	private void linkVertex(Vector2 vertex, Triangle T) {
+		ArrayList<Triangle> incident = vertexTriangles.get(vertex);
+		if (incident == null) {
+			incident = freeIncidence.size > 0 ? freeIncidence.pop() : new ArrayList<Triangle>(8);
+			vertexTriangles.put(vertex, incident);
+		}
+		incident.add(T);
+		dirty.add(vertex);
+	}
+
+	/**
+	 * This method removes a triangle from the vertex incidence map and the DT
+	 * list and marks the cells of its vertices for rebuilding.
+	 * 
+	 * @param T
+	 *            The triangle that is no longer part of the triangulation.
+	 */
+	private void unlinkTriangle(Triangle T) {
+		vertexTriangles.get(T.getA()).remove(T);
+		vertexTriangles.get(T.getB()).remove(T);
+		vertexTriangles.get(T.getC()).remove(T);
+		dirty.add(T.getA());
+		dirty.add(T.getB());
+		dirty.add(T.getC());
+		removeInner(T);
+	}
+
+	/**
+	 * This method removes duplicate edges from an ArrayList in place.
 	 * 
 	 * @param edges
 	 *            The ArrayList to check.
-	 * @return ArrayList<Edge> the remaining unique edges
+	 * @param duplicates
+	 *            The buffer for the duplicate flags.
 	 */
-	private ArrayList<Edge> removeDuplicateEdges(ArrayList<Edge> edges) {
+	private void removeDuplicateEdges(ArrayList<Edge> edges, BooleanArray duplicates) {
 
 		// could be optimized from O(n^2) to O(n) with hash map
-		ArrayList<Edge> newEdges = new ArrayList<Edge>();
+		duplicates.clear();
 
 		// iterate over all edges
 		for (int i = 0; i < edges.size(); ++i) {
@@ -294,13 +612,19 @@ public class Triangulator {
 				}
 			}
 
-			// only save the unique ones to the new set
-			if (isUnique) {
-				newEdges.add(edge1);
-			}
+			duplicates.add(!isUnique);
 		}
 
-		return newEdges;
+		// only keep the unique ones
+		int kept = 0;
+		for (int i = 0; i < edges.size(); i++) {
+			if (!duplicates.get(i)) {
+				edges.set(kept++, edges.get(i));
+			}
+		}
+		for (int i = edges.size() - 1; i >= kept; i--) {
+			edges.remove(i);
+		}
 	}
 
 	/**
@@ -312,77 +636,111 @@ public class Triangulator {
 		// clear so that diagram will be constructed all new
 		vDiagram.clear();
 
-		// initialize convex hull calculator
-		ConvexHull hull = new ConvexHull();
+		TriangulationContext ctx = context();
+		for (int i = 0; i < allPoints.size(); i++) {
+			vDiagram.add(getCell(allPoints.get(i), ctx));
+		}
+		cellCount = vDiagram.size();
+		dirty.clear();
+	}
 
-		for (Vector2 vertex : allPoints) {
+	/**
+	 * This method calculates the voronoi cell of one vertex out of the
+	 * triangles incident to it, clipped to the polygon outline.
+	 * 
+	 * @param vertex
+	 *            The vertex the cell belongs to.
+	 * @param ctx
+	 *            The scratch buffers.
+	 * @return float[] the cell as vertex array
+	 */
+	private float[] getCell(Vector2 vertex, TriangulationContext ctx) {
 
-			// create point list from this list
-			ArrayList<Triangle> trianglesAll = new ArrayList<Triangle>();
-
-			// use this list for clipping later
-			ArrayList<Triangle> trianglesInner = new ArrayList<Triangle>();
-
-			// fill list with triangles that contain the vertex to determine the
-			// cell
-			for (Triangle triangle : dTrianglesAll) {
-				if (triangle.containsPoint(vertex)) {
-					trianglesAll.add(triangle);
-					
-					// also fill the clipping list
-					if (dTriangles.contains(triangle)) {
-						trianglesInner.add(triangle);
-					}
-				}
+		if (constrained) {
+			return getConstrainedCell(vertex, ctx);
+		}
+
+		// create point list from this list
+		ArrayList<Triangle> trianglesAll = vertexTriangles.get(vertex);
+
+		// use this list for clipping later
+		ArrayList<Triangle> trianglesInner = ctx.innerTriangles;
+		trianglesInner.clear();
+
+		// fill the clipping list with the triangles that don't belong to the
+		// superTriangle
+		for (int i = 0; i < trianglesAll.size(); i++) {
+			if (!trianglesAll.get(i).containsPoint(superT)) {
+				trianglesInner.add(trianglesAll.get(i));
 			}
+		}
+
+		// initialize the cell vertex array (leave space for the original
+		// vertex too - just if it's an outline point)
+		int size = trianglesAll.size() * 2;
+		if (outlinePoints.contains(vertex)) {
+			size += 2;
+		}
+		ctx.vertices.clear();
+		float vertices[] = ctx.vertices.ensureCapacity(size);
+		if (size > trianglesAll.size() * 2) {
+			vertices[size - 2] = vertex.x;
+			vertices[size - 1] = vertex.y;
+		}
 
-			// initialize the cell vertex array (leave space for the original
-			// vertex too - just if it's an outline point)
-			float vertices[];
-			if (outlinePoints.contains(vertex)) {
-				vertices = new float[trianglesAll.size() * 2 + 2];
-				vertices[vertices.length - 2] = vertex.x;
-				vertices[vertices.length - 1] = vertex.y;
-			} else {
-				vertices = new float[trianglesAll.size() * 2];
-			}
-
-			for (int i = 0; i < trianglesAll.size(); i++) {
-				Triangle t = trianglesAll.get(i);
-				Vector2 vPoint = new Vector2(t.getCcCenter().x, t.getCcCenter().y);
-				vertices[i * 2] = vPoint.x;
-				vertices[i * 2 + 1] = vPoint.y;
-
-				// clipping the vertices outside the polygon - just for the
-				// original outline points
-				if (!pointInsidePolygon(outlinePoints, vPoint)) {
-					float distance = 0;
-
-					// find nearest midpoint in triangle in set
-					for (int j = 0; j < trianglesInner.size(); j++) {
-
-						if (trianglesInner.get(j).getMidPoints() == null) {
-							trianglesInner.get(j).calcMidPoints();
-						}
-
-						Vector2[] midpoints = trianglesInner.get(j).getMidPoints();
-						for (int k = 0; k < midpoints.length; k++) {
-							if (distance > midpoints[k].dst(vPoint) || distance == 0) {
-								distance = midpoints[k].dst(vPoint);
-
-								// clip points to the nearest midpoint =
-								// intersection point
-								vertices[i * 2] = midpoints[k].x;
-								vertices[i * 2 + 1] = midpoints[k].y;
-							}
-						}
-					}
+		for (int i = 0; i < trianglesAll.size(); i++) {
+			Triangle t = trianglesAll.get(i);
+			Vector2 vPoint = ctx.point.set(t.getCcCenter().x, t.getCcCenter().y);
+			vertices[i * 2] = vPoint.x;
+			vertices[i * 2 + 1] = vPoint.y;
+
+			// clipping the vertices outside the polygon - just for the
+			// original outline points
+			if (!pointInsidePolygon(outlinePoints, vPoint)) {
+				float distance = Float.MAX_VALUE;
+
+				// find nearest midpoint in triangle in set
+				for (int j = 0; j < trianglesInner.size(); j++) {
+					Triangle m = trianglesInner.get(j);
+					distance = clipToMidpoint(m.getA(), m.getB(), vPoint, vertices, i * 2, distance);
+					distance = clipToMidpoint(m.getB(), m.getC(), vPoint, vertices, i * 2, distance);
+					distance = clipToMidpoint(m.getC(), m.getA(), vPoint, vertices, i * 2, distance);
 				}
 			}
-			vertices = hull.computePolygon(vertices, false).toArray();
+		}
+		return ctx.hull.computePolygon(vertices, 0, size, false).toArray();
+	}
 
-			vDiagram.add(vertices);
+	/**
+	 * This method clips a cell vertex to the midpoint of a triangle edge, if
+	 * it is nearer than the nearest midpoint so far.
+	 * 
+	 * @param u
+	 *            The edge start.
+	 * @param v
+	 *            The edge end.
+	 * @param p
+	 *            The unclipped cell vertex.
+	 * @param vertices
+	 *            The cell vertex array.
+	 * @param index
+	 *            The index of the x value.
+	 * @param distance
+	 *            The distance to the nearest midpoint so far.
+	 * @return float the distance to the nearest midpoint
+	 */
+	private float clipToMidpoint(Vector2 u, Vector2 v, Vector2 p, float[] vertices, int index, float distance) {
+		float x = (u.x + v.x) / 2;
+		float y = (u.y + v.y) / 2;
+		float d = p.dst(x, y);
+		if (d >= distance) {
+			return distance;
 		}
+
+		// clip points to the nearest midpoint = intersection point
+		vertices[index] = x;
+		vertices[index + 1] = y;
+		return d;
 	}
 
 	/**
@@ -393,32 +751,16 @@ public class Triangulator {
 	 * @param newP
 	 *            the point to be added
 	 */
-	@SuppressWarnings("unchecked")
 	public void dynamicUpdatePoint(Vector2 newP) {
 
-		for (Triangle T : dTrianglesAll) {
-			T.resetCompleted(); // reset the complete flags
-		}
-
-		if (pointInsidePolygon(outlinePoints, newP) && !allPoints.contains(newP)) {
-			// add new point to point list
-			allPoints.add(newP);
-
-			// add point incrementally to the triangulation set and update the
-			// triangle list accordingly
-			dTrianglesAll = addPoint(newP, dTrianglesAll);
-			dTriangles = (ArrayList<Triangle>) dTrianglesAll.clone();
-			for (int i = dTriangles.size() - 1; i >= 0; i--) {
-				if (dTriangles.get(i).containsPoint(superT)) {
-					dTriangles.remove(i);
-				}
-			}
+		// reset the complete flags
+		completed.clear();
 
-			// recalculate the voronoi diagram
-			getVD();
-			
-			// sort all the points again
-			Collections.sort(allPoints, comparator);
+		if (insertPoint(newP)) {
+			// recalculate the changed part of the voronoi diagram
+			updateChanged = true;
+			cellCount = 0;
+			buildCells(allPoints.size());
 		}
 	}
 
@@ -430,38 +772,901 @@ public class Triangulator {
 	 * @param newPoints
 	 *            the points to be added
 	 */
-	@SuppressWarnings("unchecked")
 	public void dynamicUpdatePoints(ArrayList<Vector2> newPoints) {
+		beginUpdate(newPoints);
+		insertPoints(newPoints.size());
+		buildCells(allPoints.size());
+	}
+
+	/**
+	 * This method starts a stepwise update with new points. The update is
+	 * resumed by insertPoints until all points are inserted and by buildCells
+	 * until the changed voronoi cells are rebuilt, so its cost can be spread
+	 * over several frames. No other update may run in between, the snapshot
+	 * is published when the last cell is built.
+	 * 
+	 * @param newPoints
+	 *            the points to be added
+	 */
+	public void beginUpdate(ArrayList<Vector2> newPoints) {
+
+		// reset the complete flags
+		completed.clear();
 
-		for (Triangle T : dTrianglesAll) {
-			T.resetCompleted(); // reset the complete flags
-		}
-		
 		// sort the new points
 		Collections.sort(newPoints, comparator);
 
-		for (Vector2 point : newPoints) {
-			if (pointInsidePolygon(outlinePoints, point) && !allPoints.contains(point)) {
-				// add new point to point list
-				allPoints.add(point);
-				// add point incrementally to the triangulation set
-				dTrianglesAll = addPoint(point, dTrianglesAll);
+		updatePoints = newPoints;
+		updateIndex = 0;
+		updateChanged = false;
+		cellCount = 0;
+	}
+
+	/**
+	 * This method inserts the next points of the running stepwise update.
+	 * 
+	 * @param count
+	 *            the maximum number of points to insert
+	 * @return boolean true if all points are inserted
+	 */
+	public boolean insertPoints(int count) {
+		if (updatePoints == null) {
+			return true;
+		}
+
+		int end = Math.min(updatePoints.size(), updateIndex + count);
+		for (; updateIndex < end; updateIndex++) {
+			updateChanged |= insertPoint(updatePoints.get(updateIndex));
+		}
+		if (updateIndex < updatePoints.size()) {
+			return false;
+		}
+		updatePoints = null;
+		return true;
+	}
+
+	/**
+	 * This method builds the next voronoi cells of the running stepwise
+	 * update, after all points are inserted. Only the cells of the new points
+	 * and of the vertices whose triangles changed are rebuilt, in the order of
+	 * the points, so the first getCellCount() cells of getVDiagram() are
+	 * final. After the last cell the new snapshot is published.
+	 * 
+	 * @param count
+	 *            the maximum number of cells to rebuild
+	 * @return boolean true if all cells are built
+	 */
+	public boolean buildCells(int count) {
+		TriangulationContext ctx = context();
+		for (int built = 0; cellCount < allPoints.size() && built < count; cellCount++) {
+			Vector2 vertex = allPoints.get(cellCount);
+			if (cellCount == vDiagram.size()) {
+				vDiagram.add(getCell(vertex, ctx));
+				built++;
+			} else if (dirty.contains(vertex)) {
+				vDiagram.set(cellCount, getCell(vertex, ctx));
+				built++;
 			}
 		}
+		if (cellCount < allPoints.size()) {
+			return false;
+		}
+
+		if (updateChanged) {
+			updateChanged = false;
+			dirty.clear();
+			publish();
+		}
+		return true;
+	}
 
-		// update the triangle list accordingly
-		dTriangles = (ArrayList<Triangle>) dTrianglesAll.clone();
-		for (int i = dTriangles.size() - 1; i >= 0; i--) {
-			if (dTriangles.get(i).containsPoint(superT)) {
-				dTriangles.remove(i);
+	/**
+	 * Getter for the number of voronoi cells that are final.
+	 * 
+	 * @return int the number of final cells in getVDiagram()
+	 */
+	public int getCellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * This method adds a new point (if the point is inside the polygon and
+	 * not yet contained) incrementally to the triangulation set.
+	 * 
+	 * @param point
+	 *            the point to be added
+	 * @return boolean true if the point was added
+	 */
+	private boolean insertPoint(Vector2 point) {
+		if (pointIndex.containsKey(point)) {
+			return false;
+		}
+		if (constrained) {
+			// the located triangle doubles as inside test
+			if (!addPointConstrained(point)) {
+				return false;
 			}
+		} else if (pointInsidePolygon(outlinePoints, point)) {
+			dTrianglesAll = addPoint(point, dTrianglesAll);
+		} else {
+			return false;
 		}
 
-		// recalculate the voronoi diagram
-		getVD();
-		
-		// sort all the points again
-		Collections.sort(allPoints, comparator);
+		// add new point to point list
+		pointIndex.put(point, allPoints.size());
+		allPoints.add(point);
+		return true;
+	}
+
+	/**
+	 * This method dynamically removes a previously added point from the
+	 * existing triangulation. Only the star of the point (all triangles
+	 * incident to it) is retriangulated by ear-based delaunay hole filling,
+	 * and only the voronoi cells of its neighbours are recalculated, so the
+	 * cost is proportional to the vertex degree. Outline points and points
+	 * on the outline can't be removed.
+	 * 
+	 * @param point
+	 *            the point to be removed
+	 * @return boolean true if the point was part of the triangulation and got
+	 *         removed
+	 */
+	public boolean removePoint(Vector2 point) {
+
+		int index = indexOfPoint(point);
+		if (index < 0 || (constrained ? boundary : outlinePoints).contains(point)) {
+			return false;
+		}
+		Vector2 vertex = allPoints.get(index);
+		TriangulationContext ctx = context();
+		ctx.reset();
+
+		// the star of the vertex will be replaced completely
+		ArrayList<Triangle> star = ctx.triangles;
+		ArrayList<Triangle> incident = vertexTriangles.get(vertex);
+		for (int i = 0; i < incident.size(); i++) {
+			star.add(incident.get(i));
+		}
+
+		// collect the link vertices (the hole polygon) and their angles
+		// around the removed vertex
+		ArrayList<Vector2> hole = ctx.polygon;
+		for (int i = 0; i < star.size(); i++) {
+			Triangle T = star.get(i);
+			addLinkVertex(hole, T.getA(), vertex);
+			addLinkVertex(hole, T.getB(), vertex);
+			addLinkVertex(hole, T.getC(), vertex);
+		}
+		float[] angles = ctx.angles.ensureCapacity(hole.size());
+		for (int i = 0; i < hole.size(); i++) {
+			angles[i] = (float) Math.atan2(hole.get(i).y - vertex.y, hole.get(i).x - vertex.x);
+		}
+
+		// the star is star-shaped around the vertex, so sorting by angle
+		// gives the hole polygon in counterclockwise order (insertion sort,
+		// the degree is small)
+		for (int i = 1; i < hole.size(); i++) {
+			float angle = angles[i];
+			Vector2 v = hole.get(i);
+			int j = i - 1;
+			while (j >= 0 && angles[j] > angle) {
+				angles[j + 1] = angles[j];
+				hole.set(j + 1, hole.get(j));
+				j--;
+			}
+			angles[j + 1] = angle;
+			hole.set(j + 1, v);
+		}
+
+		// remove the star from the triangulation
+		for (int i = 0; i < star.size(); i++) {
+			unlinkTriangle(star.get(i));
+		}
+		freeIncidence.add(vertexTriangles.remove(vertex));
+		removeTriangles(dTrianglesAll, star);
+
+		// fill the hole with delaunay ears, keep the link for the cell update
+		ArrayList<Vector2> link = ctx.link;
+		link.addAll(hole);
+		while (hole.size() > 3) {
+			int ear = findDelaunayEar(hole, ctx.circle);
+			addFillTriangle(hole.get(ear), hole.get((ear + 1) % hole.size()), hole.get((ear + 2) % hole.size()));
+			hole.remove((ear + 1) % hole.size());
+		}
+		addFillTriangle(hole.get(0), hole.get(1), hole.get(2));
+
+		// update the voronoi cells of the vertex and its neighbours, the last
+		// point takes the place of the removed one
+		pointIndex.remove(vertex, -1);
+		allPoints.swapRemove(index);
+		vDiagram.swapRemove(index);
+		if (index < allPoints.size()) {
+			pointIndex.put(allPoints.get(index), index);
+		}
+		cellCount = vDiagram.size();
+		for (int i = 0; i < link.size(); i++) {
+			updateCell(link.get(i), ctx);
+		}
+		dirty.clear();
+		publish();
+
+		return true;
+	}
+
+	/**
+	 * This method adds a vertex of the star to the link polygon, if it isn't
+	 * the center vertex and not already contained.
+	 * 
+	 * @param hole
+	 *            The link polygon.
+	 * @param v
+	 *            The star vertex.
+	 * @param center
+	 *            The removed vertex.
+	 */
+	private void addLinkVertex(ArrayList<Vector2> hole, Vector2 v, Vector2 center) {
+		if (v != center && !hole.contains(v)) {
+			hole.add(v);
+		}
+	}
+
+	/**
+	 * This method finds an ear of the counterclockwise hole polygon that is
+	 * convex and whose circumcircle contains no other polygon vertex. If
+	 * numerical issues leave no such ear, the first convex ear is used.
+	 * 
+	 * @param hole
+	 *            The hole polygon.
+	 * @param ear
+	 *            The temporary triangle for the circumcircle tests.
+	 * @return int the index of the first ear vertex
+	 */
+	private int findDelaunayEar(ArrayList<Vector2> hole, Triangle ear) {
+		int n = hole.size();
+		int convexEar = -1;
+		for (int i = 0; i < n; i++) {
+			Vector2 a = hole.get(i);
+			Vector2 b = hole.get((i + 1) % n);
+			Vector2 c = hole.get((i + 2) % n);
+			float cross = (b.x - a.x) * (c.y - b.y) - (b.y - a.y) * (c.x - b.x);
+			if (cross <= 0) {
+				continue;
+			}
+			if (convexEar < 0) {
+				convexEar = i;
+			}
+
+			// delaunay check against the remaining polygon vertices
+			ear.set(a, b, c);
+			boolean empty = true;
+			for (int j = 3; j < n && empty; j++) {
+				empty = !strictlyInCC(ear, hole.get((i + j) % n));
+			}
+			if (empty) {
+				return i;
+			}
+		}
+		return Math.max(convexEar, 0);
+	}
+
+	/**
+	 * This method adds a triangle that fills a part of a removal hole to the
+	 * triangulation.
+	 * 
+	 * @param a
+	 *            Vector2 of A
+	 * @param b
+	 *            Vector2 of B
+	 * @param c
+	 *            Vector2 of C
+	 */
+	private void addFillTriangle(Vector2 a, Vector2 b, Vector2 c) {
+		Triangle T = new Triangle(a, b, c);
+		dTrianglesAll.add(T);
+		linkTriangle(T);
+
+		// in constrained mode the removed point was inside the outline, so is
+		// the whole hole
+		if (constrained || !T.containsPoint(superT)) {
+			addInner(T);
+		}
+	}
+
+	/**
+	 * This method checks if a point is strictly inside the circumcircle of a
+	 * triangle, so cocircular points are treated as outside.
+	 * 
+	 * @param T
+	 *            The triangle.
+	 * @param p
+	 *            The point to check.
+	 * @return boolean The result of the check.
+	 */
+	private boolean strictlyInCC(Triangle T, Vector2 p) {
+		float dx = T.getCcCenter().x - p.x;
+		float dy = T.getCcCenter().y - p.y;
+		return dx * dx + dy * dy < T.getCcRadiusSquared() * (1f - 1.0e-5f);
+	}
+
+	/**
+	 * This method removes a small set of triangles from a triangle list in a
+	 * single pass.
+	 * 
+	 * @param triangles
+	 *            The list to remove from.
+	 * @param removed
+	 *            The triangles to remove.
+	 */
+	private void removeTriangles(ArrayList<Triangle> triangles, ArrayList<Triangle> removed) {
+		int kept = 0;
+		for (int i = 0; i < triangles.size(); i++) {
+			Triangle T = triangles.get(i);
+			boolean remove = false;
+			for (int j = 0; j < removed.size() && !remove; j++) {
+				remove = removed.get(j) == T;
+			}
+			if (!remove) {
+				triangles.set(kept++, T);
+			}
+		}
+		for (int i = triangles.size() - 1; i >= kept; i--) {
+			triangles.remove(i);
+		}
+	}
+
+	/**
+	 * This method recalculates the voronoi cell of a vertex, if the vertex is
+	 * part of the point set.
+	 * 
+	 * @param vertex
+	 *            The vertex whose neighbourhood changed.
+	 * @param ctx
+	 *            The scratch buffers.
+	 */
+	private void updateCell(Vector2 vertex, TriangulationContext ctx) {
+		int index = indexOfPoint(vertex);
+		if (index >= 0) {
+			vDiagram.set(index, getCell(allPoints.get(index), ctx));
+		}
+	}
+
+	/**
+	 * This method finds a point in the point list, see getPoints().
+	 * 
+	 * @param point
+	 *            The point to find.
+	 * @return int the index of the point or -1 if it isn't contained
+	 */
+	public int indexOfPoint(Vector2 point) {
+		return pointIndex.get(point, -1);
+	}
+
+	/**
+	 * This method inserts all outline edges as fixed segments into the
+	 * triangulation. Edges that are missing are recovered by removing the
+	 * triangles crossing them and retriangulating the two pseudo-polygons on
+	 * either side.
+	 * 
+	 * Reference used constructing this method: Anglada in "An improved
+	 * incremental algorithm for constructing restricted Delaunay
+	 * triangulations", Computers & Graphics
+	 */
+	private void insertConstraints() {
+		constraints = new HashSet<Edge>();
+		boundary = new ArrayList<Vector2>(outlinePoints);
+		for (int i = 0; i < outlinePoints.size(); i++) {
+			insertConstraint(outlinePoints.get(i), outlinePoints.get((i + 1) % outlinePoints.size()));
+		}
+	}
+
+	/**
+	 * This method inserts one outline edge as fixed segment. If a vertex lies
+	 * on the edge, the edge is split there and both parts are inserted, a
+	 * segment through a vertex can't be recovered by removing crossing
+	 * triangles.
+	 * 
+	 * @param a
+	 *            The segment start.
+	 * @param b
+	 *            The segment end.
+	 */
+	private void insertConstraint(Vector2 a, Vector2 b) {
+		for (int i = 0; i < allPoints.size(); i++) {
+			Vector2 v = allPoints.get(i);
+			if (v != a && v != b && onSegment(a, b, v)) {
+				insertConstraint(a, v);
+				insertConstraint(v, b);
+				return;
+			}
+		}
+		if (neighbour(null, a, b) == null) {
+			insertSegment(a, b);
+		}
+		constraints.add(new Edge(a, b));
+	}
+
+	/**
+	 * This method recovers one missing segment in the triangulation.
+	 * 
+	 * @param a
+	 *            The segment start.
+	 * @param b
+	 *            The segment end.
+	 */
+	private void insertSegment(Vector2 a, Vector2 b) {
+
+		// find all triangles crossed by the segment
+		TriangulationContext ctx = context();
+		ctx.reset();
+		ArrayList<Triangle> crossing = ctx.triangles;
+		for (int i = 0; i < dTrianglesAll.size(); i++) {
+			Triangle T = dTrianglesAll.get(i);
+			if (crosses(a, b, T.getA(), T.getB()) || crosses(a, b, T.getB(), T.getC())
+					|| crosses(a, b, T.getC(), T.getA())) {
+				crossing.add(T);
+			}
+		}
+
+		// the edges of the removed region that aren't shared form the two
+		// pseudo-polygons, one on each side of the segment
+		ArrayList<Edge> edgeBuffer = ctx.edgeBuffer;
+		for (int i = 0; i < crossing.size(); i++) {
+			Triangle T = crossing.get(i);
+			edgeBuffer.add(ctx.obtainEdge(T.getA(), T.getB()));
+			edgeBuffer.add(ctx.obtainEdge(T.getB(), T.getC()));
+			edgeBuffer.add(ctx.obtainEdge(T.getC(), T.getA()));
+			unlinkTriangle(T);
+		}
+		removeTriangles(dTrianglesAll, crossing);
+		removeDuplicateEdges(edgeBuffer, ctx.duplicates);
+
+		ArrayList<Vector2> chain = walkChain(edgeBuffer, a, b, true, ctx);
+		triangulatePseudoPolygon(chain, 0, chain.size(), a, b, ctx.circle);
+		chain = walkChain(edgeBuffer, a, b, false, ctx);
+		triangulatePseudoPolygon(chain, 0, chain.size(), a, b, ctx.circle);
+	}
+
+	/**
+	 * This method walks the boundary chain on one side of a segment from the
+	 * segment start to the segment end.
+	 * 
+	 * @param edges
+	 *            The boundary edges of both sides.
+	 * @param a
+	 *            The segment start.
+	 * @param b
+	 *            The segment end.
+	 * @param left
+	 *            true for the chain left of the segment
+	 * @param ctx
+	 *            The scratch buffers, the chain is written to the polygon
+	 *            buffer.
+	 * @return ArrayList<Vector2> the chain vertices between a and b
+	 */
+	private ArrayList<Vector2> walkChain(ArrayList<Edge> edges, Vector2 a, Vector2 b, boolean left,
+			TriangulationContext ctx) {
+		ArrayList<Vector2> polygon = ctx.polygon;
+		BooleanArray used = ctx.duplicates;
+		polygon.clear();
+		used.clear();
+		for (int i = 0; i < edges.size(); i++) {
+			Edge e = edges.get(i);
+			Vector2 side = e.getA().equals(a) || e.getA().equals(b) ? e.getB() : e.getA();
+			used.add(orientation(a, b, side) > 0 != left);
+		}
+
+		Vector2 current = a;
+		while (!current.equals(b)) {
+			Vector2 following = null;
+			for (int i = 0; i < edges.size() && following == null; i++) {
+				Edge e = edges.get(i);
+				if (used.get(i)) {
+					continue;
+				}
+				if (e.getA().equals(current)) {
+					following = e.getB();
+				} else if (e.getB().equals(current)) {
+					following = e.getA();
+				}
+				used.set(i, following != null);
+			}
+			if (following == null) {
+				throw new IllegalStateException("The boundary chain of a segment is broken.");
+			}
+			if (!following.equals(b)) {
+				polygon.add(following);
+			}
+			current = following;
+		}
+		return polygon;
+	}
+
+	/**
+	 * This method triangulates a pseudo-polygon on one side of a segment by
+	 * recursively choosing the vertex whose circle through the segment
+	 * contains no other polygon vertex.
+	 * 
+	 * @param polygon
+	 *            The polygon vertices.
+	 * @param from
+	 *            The index of the first vertex between a and b.
+	 * @param to
+	 *            The index behind the last vertex between a and b.
+	 * @param a
+	 *            The segment start.
+	 * @param b
+	 *            The segment end.
+	 * @param circle
+	 *            The temporary triangle for the circumcircle tests.
+	 */
+	private void triangulatePseudoPolygon(List<Vector2> polygon, int from, int to, Vector2 a, Vector2 b,
+			Triangle circle) {
+		if (from >= to) {
+			return;
+		}
+
+		int c = from;
+		circle.set(a, b, polygon.get(c));
+		for (int i = from + 1; i < to; i++) {
+			if (strictlyInCC(circle, polygon.get(i))) {
+				c = i;
+				circle.set(a, b, polygon.get(c));
+			}
+		}
+
+		Triangle T = new Triangle(a, b, polygon.get(c));
+		triangulatePseudoPolygon(polygon, from, c, a, polygon.get(c), circle);
+		triangulatePseudoPolygon(polygon, c + 1, to, polygon.get(c), b, circle);
+		dTrianglesAll.add(T);
+		linkTriangle(T);
+	}
+
+	/**
+	 * This method classifies the triangles inside the outline with a flood
+	 * fill starting at the supertriangle that stops at the fixed segments.
+	 */
+	private void classifyTriangles() {
+		TriangulationContext ctx = context();
+		ctx.reset();
+
+		// the reached triangles are outside
+		ArrayList<Triangle> queue = ctx.triangles;
+		ObjectSet<Triangle> outside = ctx.marks;
+		for (Triangle T : dTrianglesAll) {
+			if (T.containsPoint(superT)) {
+				outside.add(T);
+				queue.add(T);
+			}
+		}
+
+		for (int i = 0; i < queue.size(); i++) {
+			Triangle T = queue.get(i);
+			floodAcross(T, T.getA(), T.getB(), queue, outside, ctx.probe);
+			floodAcross(T, T.getB(), T.getC(), queue, outside, ctx.probe);
+			floodAcross(T, T.getC(), T.getA(), queue, outside, ctx.probe);
+		}
+
+		dTriangles = new SharedList<Triangle>();
+		innerIndex.clear();
+		for (Triangle T : dTrianglesAll) {
+			if (!outside.contains(T)) {
+				addInner(T);
+			}
+		}
+	}
+
+	/**
+	 * This method continues the flood fill across one triangle edge, if the
+	 * edge isn't a fixed segment.
+	 * 
+	 * @param T
+	 *            The current triangle.
+	 * @param u
+	 *            The edge start.
+	 * @param v
+	 *            The edge end.
+	 * @param queue
+	 *            The flood fill queue.
+	 * @param outside
+	 *            The triangles reached so far.
+	 * @param probe
+	 *            The temporary edge for the segment lookup.
+	 */
+	private void floodAcross(Triangle T, Vector2 u, Vector2 v, ArrayList<Triangle> queue, ObjectSet<Triangle> outside,
+			Edge probe) {
+		probe.set(u, v);
+		if (constraints.contains(probe)) {
+			return;
+		}
+		Triangle N = neighbour(T, u, v);
+		if (N != null && outside.add(N)) {
+			queue.add(N);
+		}
+	}
+
+	/**
+	 * This method adds a point inside the outline to the constrained
+	 * triangulation. The cavity of triangles whose circumcircle contains the
+	 * point is grown from the triangle containing it and never crosses a
+	 * fixed segment, so the segments are kept. A point on a fixed segment
+	 * splits it in two, the cavity then grows to both sides and every new
+	 * triangle stays on the side of the cavity triangle it replaces.
+	 * 
+	 * @param point
+	 *            The point to add.
+	 * @return boolean false if the point is outside the outline
+	 */
+	private boolean addPointConstrained(Vector2 point) {
+
+		// locate the interior triangle containing the point
+		Triangle start = null;
+		for (int i = 0; i < dTriangles.size() && start == null; i++) {
+			if (containsPosition(dTriangles.get(i), point)) {
+				start = dTriangles.get(i);
+			}
+		}
+		if (start == null) {
+			return false;
+		}
+
+		TriangulationContext ctx = context();
+		ctx.reset();
+		splitConstraint(start.getA(), start.getB(), point, ctx.probe);
+		splitConstraint(start.getB(), start.getC(), point, ctx.probe);
+		splitConstraint(start.getC(), start.getA(), point, ctx.probe);
+
+		ArrayList<Triangle> cavity = ctx.triangles;
+		cavity.add(start);
+		for (int i = 0; i < cavity.size(); i++) {
+			Triangle T = cavity.get(i);
+			growCavity(T, T.getA(), T.getB(), point, ctx);
+			growCavity(T, T.getB(), T.getC(), point, ctx);
+			growCavity(T, T.getC(), T.getA(), point, ctx);
+		}
+
+		for (int i = 0; i < cavity.size(); i++) {
+			unlinkTriangle(cavity.get(i));
+		}
+		removeTriangles(dTrianglesAll, cavity);
+
+		// the cavity is star-shaped around the point
+		for (int i = 0; i < ctx.edgeBuffer.size(); i++) {
+			Edge e = ctx.edgeBuffer.get(i);
+			Triangle T = new Triangle(e.getA(), e.getB(), point);
+			dTrianglesAll.add(T);
+			linkTriangle(T);
+			if (ctx.sides.get(i)) {
+				addInner(T);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * This method splits a fixed segment at a new point, if the point lies
+	 * on it.
+	 * 
+	 * @param u
+	 *            The edge start of the triangle containing the point.
+	 * @param v
+	 *            The edge end.
+	 * @param point
+	 *            The point to add.
+	 * @param probe
+	 *            The temporary edge for the segment lookup.
+	 */
+	private void splitConstraint(Vector2 u, Vector2 v, Vector2 point, Edge probe) {
+		probe.set(u, v);
+		if (!constraints.contains(probe) || !onSegment(u, v, point)) {
+			return;
+		}
+		constraints.remove(probe);
+		constraints.add(new Edge(u, point));
+		constraints.add(new Edge(point, v));
+
+		// keep the boundary in outline order
+		int i = boundary.indexOf(u);
+		int j = boundary.indexOf(v);
+		boundary.add(j == (i + 1) % boundary.size() ? i + 1 : j + 1, point);
+	}
+
+	/**
+	 * This method grows the insertion cavity across one triangle edge or
+	 * records the edge as cavity boundary.
+	 * 
+	 * @param T
+	 *            The cavity triangle.
+	 * @param u
+	 *            The edge start.
+	 * @param v
+	 *            The edge end.
+	 * @param point
+	 *            The point to add.
+	 * @param ctx
+	 *            The scratch buffers holding the cavity and its boundary.
+	 */
+	private void growCavity(Triangle T, Vector2 u, Vector2 v, Vector2 point, TriangulationContext ctx) {
+		ctx.probe.set(u, v);
+		Triangle N = constraints.contains(ctx.probe) ? null : neighbour(T, u, v);
+		if (N != null && ctx.triangles.contains(N)) {
+			return;
+		}
+		if (N != null && N.inCC(point)) {
+			ctx.triangles.add(N);
+		} else {
+			ctx.edgeBuffer.add(ctx.obtainEdge(u, v));
+			ctx.sides.add(isInterior(T));
+		}
+	}
+
+	/**
+	 * This method finds the triangle on the other side of an edge.
+	 * 
+	 * @param T
+	 *            The triangle on this side, null to find any triangle.
+	 * @param u
+	 *            The edge start.
+	 * @param v
+	 *            The edge end.
+	 * @return Triangle the neighbour or null if there is none
+	 */
+	private Triangle neighbour(Triangle T, Vector2 u, Vector2 v) {
+		ArrayList<Triangle> incident = vertexTriangles.get(u);
+		for (int i = 0; i < incident.size(); i++) {
+			Triangle N = incident.get(i);
+			if (N != T && N.containsPoint(v)) {
+				return N;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * This method calculates the voronoi cell of one vertex in constrained
+	 * mode. Only the interior triangles are used, every circumcenter is
+	 * clamped into its triangle and the vertices on the outline additionally
+	 * get the midpoints of their outline edges, so the cell is inside the outline
+	 * without any point in polygon test.
+	 * 
+	 * @param vertex
+	 *            The vertex the cell belongs to.
+	 * @param ctx
+	 *            The scratch buffers.
+	 * @return float[] the cell as vertex array
+	 */
+	private float[] getConstrainedCell(Vector2 vertex, TriangulationContext ctx) {
+		ArrayList<Triangle> incident = vertexTriangles.get(vertex);
+
+		int inner = 0;
+		for (int i = 0; i < incident.size(); i++) {
+			if (isInterior(incident.get(i))) {
+				inner++;
+			}
+		}
+
+		int outlineIndex = boundary.indexOf(vertex);
+		ctx.vertices.clear();
+		float vertices[] = ctx.vertices.ensureCapacity(inner * 2 + (outlineIndex >= 0 ? 6 : 0));
+
+		int n = 0;
+		for (int i = 0; i < incident.size(); i++) {
+			Triangle t = incident.get(i);
+			if (isInterior(t)) {
+				putClampedCenter(t, vertices, n);
+				n += 2;
+			}
+		}
+
+		if (outlineIndex >= 0) {
+			Vector2 previous = boundary.get((outlineIndex + boundary.size() - 1) % boundary.size());
+			Vector2 next = boundary.get((outlineIndex + 1) % boundary.size());
+			vertices[n++] = vertex.x;
+			vertices[n++] = vertex.y;
+			vertices[n++] = (vertex.x + previous.x) / 2;
+			vertices[n++] = (vertex.y + previous.y) / 2;
+			vertices[n++] = (vertex.x + next.x) / 2;
+			vertices[n++] = (vertex.y + next.y) / 2;
+		}
+
+		return ctx.hull.computePolygon(vertices, 0, n, false).toArray();
+	}
+
+	/**
+	 * This method writes the circumcenter of a triangle into a vertex array.
+	 * If the triangle is obtuse, the circumcenter is outside of it and the
+	 * midpoint of the longest edge is used instead.
+	 * 
+	 * @param t
+	 *            The triangle.
+	 * @param vertices
+	 *            The vertex array.
+	 * @param index
+	 *            The index of the x value.
+	 */
+	private void putClampedCenter(Triangle t, float[] vertices, int index) {
+		Vector2 a = t.getA();
+		Vector2 b = t.getB();
+		Vector2 c = t.getC();
+		if ((b.x - a.x) * (c.x - a.x) + (b.y - a.y) * (c.y - a.y) < 0) {
+			vertices[index] = (b.x + c.x) / 2;
+			vertices[index + 1] = (b.y + c.y) / 2;
+		} else if ((a.x - b.x) * (c.x - b.x) + (a.y - b.y) * (c.y - b.y) < 0) {
+			vertices[index] = (a.x + c.x) / 2;
+			vertices[index + 1] = (a.y + c.y) / 2;
+		} else if ((a.x - c.x) * (b.x - c.x) + (a.y - c.y) * (b.y - c.y) < 0) {
+			vertices[index] = (a.x + b.x) / 2;
+			vertices[index + 1] = (a.y + b.y) / 2;
+		} else {
+			vertices[index] = t.getCcCenter().x;
+			vertices[index + 1] = t.getCcCenter().y;
+		}
+	}
+
+	/**
+	 * This method calculates on which side of the line through a and b the
+	 * point p is.
+	 * 
+	 * @param a
+	 *            The line start.
+	 * @param b
+	 *            The line end.
+	 * @param p
+	 *            The point.
+	 * @return float positive if p is left, negative if p is right of the line
+	 */
+	private float orientation(Vector2 a, Vector2 b, Vector2 p) {
+		return (b.x - a.x) * (p.y - a.y) - (b.y - a.y) * (p.x - a.x);
+	}
+
+	/**
+	 * This method checks if the segments ab and uv properly cross each other.
+	 * 
+	 * @param a
+	 *            The first segment start.
+	 * @param b
+	 *            The first segment end.
+	 * @param u
+	 *            The second segment start.
+	 * @param v
+	 *            The second segment end.
+	 * @return boolean The result of the check.
+	 */
+	private boolean crosses(Vector2 a, Vector2 b, Vector2 u, Vector2 v) {
+		return orientation(a, b, u) * orientation(a, b, v) < 0 && orientation(u, v, a) * orientation(u, v, b) < 0;
+	}
+
+	/**
+	 * This method checks if a point lies on the segment ab, between its end
+	 * points.
+	 * 
+	 * @param a
+	 *            The segment start.
+	 * @param b
+	 *            The segment end.
+	 * @param p
+	 *            The point.
+	 * @return boolean The result of the check.
+	 */
+	private boolean onSegment(Vector2 a, Vector2 b, Vector2 p) {
+		float length2 = a.dst2(b);
+		float along = (p.x - a.x) * (b.x - a.x) + (p.y - a.y) * (b.y - a.y);
+		return Math.abs(orientation(a, b, p)) <= ON_SEGMENT * length2 && along > 0 && along < length2;
+	}
+
+	/**
+	 * This method checks if a position lies inside or on a triangle.
+	 * 
+	 * @param T
+	 *            The triangle.
+	 * @param p
+	 *            The position.
+	 * @return boolean The result of the check.
+	 */
+	private boolean containsPosition(Triangle T, Vector2 p) {
+		float d1 = orientation(T.getA(), T.getB(), p);
+		float d2 = orientation(T.getB(), T.getC(), p);
+		float d3 = orientation(T.getC(), T.getA(), p);
+		return (d1 >= 0 && d2 >= 0 && d3 >= 0) || (d1 <= 0 && d2 <= 0 && d3 <= 0);
 	}
 
 	/**
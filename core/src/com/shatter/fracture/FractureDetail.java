@@ -0,0 +1,144 @@
+package com.shatter.fracture;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * This class chooses the fracture detail of a shattered asteroid. The number
+ * of fracture points follows the pixels the asteroid covers on screen,
+ * measured from the extremes of its outline and the zoom of the camera, so a
+ * big asteroid in view breaks into many pieces and a tiny or invisible one
+ * into a few. The more fracture jobs are pending, the less detail every new
+ * one gets.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class FractureDetail {
+
+	/**
+	 * The camera the asteroids are seen through.
+	 */
+	private final OrthographicCamera camera;
+
+	/**
+	 * The screen area per fracture point in square pixels.
+	 */
+	private float pixelsPerPoint = 256f;
+
+	/**
+	 * The fewest fracture points.
+	 */
+	private int minPoints = 3;
+
+	/**
+	 * The number of pending fracture jobs the full detail is kept up to.
+	 */
+	private int pendingLimit = 2;
+
+	/**
+	 * The last chosen number of fracture points.
+	 */
+	private int lastCount;
+
+	/**
+	 * The constructor for the fracture detail.
+	 * 
+	 * @param camera
+	 *            The camera the asteroids are seen through.
+	 */
+	public FractureDetail(OrthographicCamera camera) {
+		this.camera = camera;
+	}
+
+	/**
+	 * This method chooses the number of fracture points for an asteroid.
+	 * 
+	 * @param outline
+	 *            The outline of the asteroid in its local frame.
+	 * @param position
+	 *            The position of the asteroid.
+	 * @param maxPoints
+	 *            The most fracture points.
+	 * @param pending
+	 *            The number of pending fracture jobs.
+	 * @return int the number of fracture points
+	 */
+	public int pointCount(float[] outline, Vector2 position, int maxPoints, int pending) {
+		// the extremes of the outline, the radius covers every rotation
+		float radius = 0;
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (int i = 0; i < outline.length; i += 2) {
+			minX = Math.min(minX, outline[i]);
+			maxX = Math.max(maxX, outline[i]);
+			minY = Math.min(minY, outline[i + 1]);
+			maxY = Math.max(maxY, outline[i + 1]);
+			radius = Math.max(radius, Vector2.len(outline[i], outline[i + 1]));
+		}
+
+		float count;
+		if (!camera.frustum.boundsInFrustum(position.x, position.y, 0, radius, radius, 0)) {
+			count = 0; // nobody sees it break
+		} else {
+			float pixels = Gdx.graphics.getWidth() / (camera.viewportWidth * camera.zoom);
+			count = (maxX - minX) * (maxY - minY) * pixels * pixels / pixelsPerPoint;
+		}
+		if (pending > pendingLimit) {
+			count = count * pendingLimit / pending;
+		}
+
+		lastCount = Math.min(maxPoints, Math.max(minPoints, (int) count));
+		return lastCount;
+	}
+
+	/**
+	 * Getter for the last chosen number of fracture points.
+	 * 
+	 * @return int the point count
+	 */
+	public int getLastCount() {
+		return lastCount;
+	}
+
+	/**
+	 * Getter for the screen area per fracture point.
+	 * 
+	 * @return float the area in square pixels
+	 */
+	public float getPixelsPerPoint() {
+		return pixelsPerPoint;
+	}
+
+	/**
+	 * Setter for the screen area per fracture point.
+	 * 
+	 * @param pixelsPerPoint
+	 *            The area in square pixels.
+	 */
+	public void setPixelsPerPoint(float pixelsPerPoint) {
+		this.pixelsPerPoint = pixelsPerPoint;
+	}
+
+	/**
+	 * Setter for the fewest fracture points.
+	 * 
+	 * @param minPoints
+	 *            The point count.
+	 */
+	public void setMinPoints(int minPoints) {
+		this.minPoints = minPoints;
+	}
+
+	/**
+	 * Setter for the number of pending fracture jobs the full detail is kept
+	 * up to.
+	 * 
+	 * @param pendingLimit
+	 *            The job count.
+	 */
+	public void setPendingLimit(int pendingLimit) {
+		this.pendingLimit = pendingLimit;
+	}
+
+}
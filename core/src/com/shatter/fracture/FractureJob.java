@@ -0,0 +1,329 @@
+package com.shatter.fracture;
+
+import java.util.ArrayList;
+
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.gdx.math.Vector2;
+import com.shatter.component.Fracture;
+import com.shatter.dt.FlatTriangulation;
+import com.shatter.dt.Triangulator;
+
+/**
+ * This class represents the fracture work of one shattered asteroid: adding the
+ * fracture points to its triangulation and rebuilding the voronoi diagram, or
+ * for an impact fracture splitting the mesh around the impact (see
+ * ImpactFracture). It can run at once on any thread, the result is handed back
+ * to the game thread to spawn the fragments, or in resumable steps under a time
+ * budget, so the fragments can be spawned as their cells are built.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class FractureJob implements Runnable {
+
+	/**
+	 * The number of points inserted or cells built between two budget
+	 * checks.
+	 */
+	private static final int STEP_SIZE = 8;
+
+	/**
+	 * The shattered asteroid entity.
+	 */
+	private final Entity asteroid;
+
+	/**
+	 * The triangulation of the asteroid, built by the job if the asteroid
+	 * has none yet.
+	 */
+	private Triangulator triangulator;
+
+	/**
+	 * The seeds of the asteroid's triangulation, null if it has none.
+	 */
+	private final float[] seeds;
+
+	/**
+	 * The fracture points to add.
+	 */
+	private final ArrayList<Vector2> points;
+
+	/**
+	 * The impact points in the asteroid's local frame, null if the whole
+	 * asteroid is shattered.
+	 */
+	private final ArrayList<Vector2> impacts;
+
+	/**
+	 * The impact radius.
+	 */
+	private final float radius;
+
+	/**
+	 * The outline of the asteroid.
+	 */
+	private final float[] outline;
+
+	/**
+	 * The result of an impact fracture.
+	 */
+	private ImpactFracture impactFracture;
+
+	/**
+	 * The resulting voronoi cells.
+	 */
+	private FlatTriangulation cells;
+
+	/**
+	 * The failed flag.
+	 */
+	private boolean failed;
+
+	/**
+	 * The started flag of the stepwise update.
+	 */
+	private boolean started;
+
+	/**
+	 * True if the triangulation is the one cached by the asteroid's fracture
+	 * component, false if the job built it.
+	 */
+	private final boolean cached;
+
+	/**
+	 * The done flag.
+	 */
+	private boolean done;
+
+	/**
+	 * The number of cells already spawned as fragments.
+	 */
+	private int spawned;
+
+	/**
+	 * The time spent on this job in nanoseconds.
+	 */
+	private long nanos;
+
+	/**
+	 * The constructor for the fracture job.
+	 * 
+	 * @param asteroid
+	 *            The shattered asteroid entity.
+	 * @param triangulator
+	 *            The triangulation of the asteroid, only this job may update
+	 *            it until it is done, null to build it in the job.
+	 * @param outline
+	 *            The outline of the asteroid.
+	 * @param seeds
+	 *            The seeds of the asteroid, null if it has none.
+	 * @param points
+	 *            The fracture points in the asteroid's local frame.
+	 */
+	public FractureJob(Entity asteroid, Triangulator triangulator, float[] outline, float[] seeds,
+			ArrayList<Vector2> points) {
+		this(asteroid, triangulator, outline, seeds, points, null, 0);
+	}
+
+	/**
+	 * The constructor for an impact fracture job, only the points within the
+	 * radius around the impacts become fragments.
+	 * 
+	 * @param asteroid
+	 *            The shattered asteroid entity.
+	 * @param triangulator
+	 *            The triangulation of the asteroid, only this job may update
+	 *            it until it is done, null to build it in the job.
+	 * @param outline
+	 *            The outline of the asteroid.
+	 * @param seeds
+	 *            The seeds of the asteroid, null if it has none.
+	 * @param points
+	 *            The fracture points in the asteroid's local frame.
+	 * @param impacts
+	 *            The impact points in the asteroid's local frame, null to
+	 *            shatter the whole asteroid.
+	 * @param radius
+	 *            The impact radius.
+	 */
+	public FractureJob(Entity asteroid, Triangulator triangulator, float[] outline, float[] seeds,
+			ArrayList<Vector2> points, ArrayList<Vector2> impacts, float radius) {
+		this.asteroid = asteroid;
+		this.triangulator = triangulator;
+		this.cached = triangulator != null;
+		this.outline = outline;
+		this.seeds = seeds;
+		this.points = points;
+		this.impacts = impacts;
+		this.radius = radius;
+	}
+
+	/**
+	 * This method builds the triangulation if needed, adds the fracture
+	 * points and keeps the resulting cells.
+	 */
+	@Override
+	public void run() {
+		step(Long.MAX_VALUE);
+		if (!failed && impacts == null) {
+			cells = triangulator.getSnapshot().getFlat();
+		}
+	}
+
+	/**
+	 * This method continues the fracture work in steps until it is done or
+	 * the deadline is reached. At least one step is done per call.
+	 * 
+	 * @param deadline
+	 *            The deadline in System.nanoTime() nanoseconds.
+	 * @return boolean true if the job is done
+	 */
+	public boolean step(long deadline) {
+		long start = System.nanoTime();
+		boolean result = advance(deadline);
+		nanos += System.nanoTime() - start;
+		return result;
+	}
+
+	/**
+	 * This method does the steps of step().
+	 * 
+	 * @param deadline
+	 *            The deadline in System.nanoTime() nanoseconds.
+	 * @return boolean true if the job is done
+	 */
+	private boolean advance(long deadline) {
+		try {
+			if (!started) {
+				if (triangulator == null) {
+					triangulator = Fracture.createTriangulator(outline, seeds);
+				}
+				triangulator.beginUpdate(points);
+				started = true;
+			}
+			while (!triangulator.insertPoints(STEP_SIZE)) {
+				if (System.nanoTime() - deadline >= 0) {
+					return false;
+				}
+			}
+			if (impacts != null && impactFracture == null) {
+				impactFracture = new ImpactFracture(triangulator, impacts, radius);
+				if (!cached) {
+					// the asteroid is replaced by its pieces, the cells of
+					// its own triangulation are never needed
+					done = true;
+					return true;
+				}
+				// the cached triangulation is finished as well, so it isn't
+				// left in the middle of an update
+			}
+			while (!triangulator.buildCells(STEP_SIZE)) {
+				if (System.nanoTime() - deadline >= 0) {
+					return false;
+				}
+			}
+		} catch (RuntimeException e) {
+			failed = true;
+			e.printStackTrace();
+		}
+		done = true;
+		return true;
+	}
+
+	/**
+	 * Getter of the time spent on this job.
+	 * 
+	 * @return float the time in milliseconds
+	 */
+	public float getMillis() {
+		return nanos / 1000000f;
+	}
+
+	/**
+	 * Getter of the shattered asteroid.
+	 * 
+	 * @return Entity the asteroid
+	 */
+	public Entity getAsteroid() {
+		return asteroid;
+	}
+
+	/**
+	 * Getter of the resulting voronoi cells.
+	 * 
+	 * @return FlatTriangulation the cells or null if the job isn't done or
+	 *         failed
+	 */
+	public FlatTriangulation getCells() {
+		return cells;
+	}
+
+	/**
+	 * Getter of the result of an impact fracture.
+	 * 
+	 * @return ImpactFracture the fragments and the remaining body or null if
+	 *         the job isn't done, failed or shatters the whole asteroid
+	 */
+	public ImpactFracture getImpactFracture() {
+		return impactFracture;
+	}
+
+	/**
+	 * Gets the impact flag.
+	 * 
+	 * @return boolean true if only the points around the impacts become
+	 *         fragments
+	 */
+	public boolean isImpact() {
+		return impacts != null;
+	}
+
+	/**
+	 * Getter of the triangulation of the asteroid, its first
+	 * getCellCount() voronoi cells are final during a stepwise update.
+	 * 
+	 * @return Triangulator the triangulator or null if the job hasn't
+	 *         started
+	 */
+	public Triangulator getTriangulator() {
+		return triangulator;
+	}
+
+	/**
+	 * Getter of the number of cells already spawned as fragments.
+	 * 
+	 * @return int the spawned cell count
+	 */
+	public int getSpawned() {
+		return spawned;
+	}
+
+	/**
+	 * Setter of the number of cells already spawned as fragments.
+	 * 
+	 * @param spawned
+	 *            The spawned cell count.
+	 */
+	public void setSpawned(int spawned) {
+		this.spawned = spawned;
+	}
+
+	/**
+	 * Gets the done flag.
+	 * 
+	 * @return boolean true if the job is done, successfully or not
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Gets the failed flag.
+	 * 
+	 * @return boolean true if the triangulation update failed
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+
+}
@@ -0,0 +1,229 @@
+package com.shatter.fracture;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * This class writes and reads pattern packs, a compact binary format for
+ * fracture patterns, so they can be produced offline and loaded at startup
+ * instead of being triangulated. All values are 4 byte little endian:
+ * 
+ * header: magic, version, pattern count, CRC32 of the payload
+ * 
+ * payload per pattern: point count, triangle count, cell count, cell float
+ * count, then the point floats (x, y), the triangle index triples, the cell
+ * table (offset, length) and the cell vertex floats, one cell per point
+ * 
+ * The reader maps the file and the patterns are views of the mapping, so no
+ * cell is copied.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class FracturePack {
+
+	/**
+	 * The magic number, "SHFP".
+	 */
+	public static final int MAGIC = 0x53484650;
+
+	/**
+	 * The format version.
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * The header size in bytes.
+	 */
+	private static final int HEADER = 16;
+
+	/**
+	 * This method writes patterns into a pack file.
+	 * 
+	 * @param patterns
+	 *            The patterns.
+	 * @param file
+	 *            The pack file, replaced if it exists.
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public static void write(FracturePattern[] patterns, File file) throws IOException {
+		int size = HEADER;
+		for (FracturePattern p : patterns) {
+			size += 16 + (p.getPoints().limit() + p.getTriangles().limit() + p.getCellTable().limit()
+					+ p.getCellVertices().limit()) * 4;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.position(HEADER);
+		for (FracturePattern p : patterns) {
+			buffer.putInt(p.getPointCount());
+			buffer.putInt(p.getTriangleCount());
+			buffer.putInt(p.getCellCount());
+			buffer.putInt(p.getCellVertices().limit());
+			for (int i = 0; i < p.getPoints().limit(); i++) {
+				buffer.putFloat(p.getPoints().get(i));
+			}
+			for (int i = 0; i < p.getTriangles().limit(); i++) {
+				buffer.putInt(p.getTriangles().get(i));
+			}
+			for (int i = 0; i < p.getCellTable().limit(); i++) {
+				buffer.putInt(p.getCellTable().get(i));
+			}
+			for (int i = 0; i < p.getCellVertices().limit(); i++) {
+				buffer.putFloat(p.getCellVertices().get(i));
+			}
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), HEADER, size - HEADER);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, patterns.length);
+		buffer.putInt(12, (int) crc.getValue());
+
+		buffer.rewind();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			FileChannel channel = out.getChannel();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * This method reads the patterns of a pack file. The file is mapped, the
+	 * mapping stays valid as long as the patterns are used.
+	 * 
+	 * @param file
+	 *            The pack file.
+	 * @return FracturePattern[] the patterns
+	 * @throws IOException
+	 *             if the file can't be read, isn't a pack of this version or
+	 *             is damaged
+	 */
+	public static FracturePattern[] read(File file) throws IOException {
+		MappedByteBuffer mapped;
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			in.close();
+		}
+		ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+		if (buffer.limit() < HEADER || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a pattern pack: " + file);
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported pattern pack version " + buffer.getInt(4) + ": " + file);
+		}
+		if (buffer.getInt(12) != (int) checksum(buffer, HEADER)) {
+			throw new IOException("Damaged pattern pack: " + file);
+		}
+
+		try {
+			FracturePattern[] patterns = new FracturePattern[buffer.getInt(8)];
+			int position = HEADER;
+			for (int i = 0; i < patterns.length; i++) {
+				int points = buffer.getInt(position) * 2;
+				int triangles = buffer.getInt(position + 4) * 3;
+				int cells = buffer.getInt(position + 8) * 2;
+				int cellFloats = buffer.getInt(position + 12);
+				position += 16;
+
+				FloatBuffer pointView = view(buffer, position, points).asFloatBuffer();
+				position += points * 4;
+				IntBuffer triangleView = view(buffer, position, triangles).asIntBuffer();
+				position += triangles * 4;
+				IntBuffer tableView = view(buffer, position, cells).asIntBuffer();
+				position += cells * 4;
+				FloatBuffer cellView = view(buffer, position, cellFloats).asFloatBuffer();
+				position += cellFloats * 4;
+
+				patterns[i] = new FracturePattern(pointView, triangleView, cellView, tableView);
+			}
+			return patterns;
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Truncated pattern pack: " + file);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Truncated pattern pack: " + file);
+		}
+	}
+
+	/**
+	 * This method creates a little endian view of a range of a buffer.
+	 * 
+	 * @param buffer
+	 *            The buffer.
+	 * @param position
+	 *            The start of the range in bytes.
+	 * @param count
+	 *            The number of 4 byte values.
+	 * @return ByteBuffer the view
+	 */
+	private static ByteBuffer view(ByteBuffer buffer, int position, int count) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(position);
+		view.limit(position + count * 4);
+		// slices are big endian again
+		return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * This method calculates the CRC32 of a buffer from an offset to its
+	 * limit, in chunks, so the mapping isn't copied at once.
+	 * 
+	 * @param buffer
+	 *            The buffer.
+	 * @param offset
+	 *            The start in bytes.
+	 * @return long the checksum
+	 */
+	private static long checksum(ByteBuffer buffer, int offset) {
+		CRC32 crc = new CRC32();
+		ByteBuffer data = buffer.duplicate();
+		data.position(offset);
+		byte[] chunk = new byte[8192];
+		while (data.hasRemaining()) {
+			int length = Math.min(chunk.length, data.remaining());
+			data.get(chunk, 0, length);
+			crc.update(chunk, 0, length);
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * This method produces a pattern pack offline.
+	 * 
+	 * @param args
+	 *            The pack file, optionally followed by the pattern count, the
+	 *            fracture point count and the seed.
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("usage: FracturePack <file> [patterns] [points] [seed]");
+			return;
+		}
+		int patterns = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int points = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : System.currentTimeMillis();
+		write(new FracturePatternLibrary(patterns, points, seed).getPatterns(), new File(args[0]));
+	}
+
+}
@@ -0,0 +1,164 @@
+package com.shatter.fracture;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * This class represents a precomputed fracture pattern: the delaunay
+ * triangulation and voronoi cells of a disc with radius 1, shattered by a hit
+ * travelling along the positive x axis, so the cells are small around the
+ * impact point (-1, 0) and get bigger further away. Cell i belongs to point i,
+ * degenerated cells are empty. The data is stored flat in buffers, either
+ * wrapping arrays or views of a mapped pattern pack. A pattern is immutable and
+ * can be shared.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public final class FracturePattern {
+
+	/**
+	 * The triangulated points, x and y per point.
+	 */
+	private final FloatBuffer points;
+
+	/**
+	 * The triangles, three point indices per triangle.
+	 */
+	private final IntBuffer triangles;
+
+	/**
+	 * The cell vertices, x and y per vertex, all cells one after another.
+	 */
+	private final FloatBuffer cellVertices;
+
+	/**
+	 * The cell table, offset and length (both in floats) into cellVertices
+	 * per cell.
+	 */
+	private final IntBuffer cellTable;
+
+	/**
+	 * The constructor for the fracture pattern out of arrays.
+	 * 
+	 * @param points
+	 *            The triangulated points.
+	 * @param triangles
+	 *            The point indices of the triangles.
+	 * @param cellVertices
+	 *            The convex cell vertices.
+	 * @param cellTable
+	 *            The cell offsets and lengths.
+	 */
+	public FracturePattern(float[] points, int[] triangles, float[] cellVertices, int[] cellTable) {
+		this(FloatBuffer.wrap(points), IntBuffer.wrap(triangles), FloatBuffer.wrap(cellVertices),
+				IntBuffer.wrap(cellTable));
+	}
+
+	/**
+	 * The constructor for the fracture pattern out of buffers, e.g. views of
+	 * a mapped file. The buffers are read with absolute indices from 0 to
+	 * their limit and must not be changed.
+	 * 
+	 * @param points
+	 *            The triangulated points.
+	 * @param triangles
+	 *            The point indices of the triangles.
+	 * @param cellVertices
+	 *            The convex cell vertices.
+	 * @param cellTable
+	 *            The cell offsets and lengths.
+	 */
+	public FracturePattern(FloatBuffer points, IntBuffer triangles, FloatBuffer cellVertices, IntBuffer cellTable) {
+		this.points = points.asReadOnlyBuffer();
+		this.triangles = triangles.asReadOnlyBuffer();
+		this.cellVertices = cellVertices.asReadOnlyBuffer();
+		this.cellTable = cellTable.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Getter of the triangulated points.
+	 * 
+	 * @return FloatBuffer x and y per point
+	 */
+	public FloatBuffer getPoints() {
+		return points;
+	}
+
+	/**
+	 * Getter of the triangles.
+	 * 
+	 * @return IntBuffer three point indices per triangle
+	 */
+	public IntBuffer getTriangles() {
+		return triangles;
+	}
+
+	/**
+	 * Getter of the cell vertices of all cells.
+	 * 
+	 * @return FloatBuffer the cell vertices
+	 */
+	public FloatBuffer getCellVertices() {
+		return cellVertices;
+	}
+
+	/**
+	 * Getter of the cell table.
+	 * 
+	 * @return IntBuffer offset and length in floats per cell
+	 */
+	public IntBuffer getCellTable() {
+		return cellTable;
+	}
+
+	/**
+	 * Getter of the number of points.
+	 * 
+	 * @return int the point count
+	 */
+	public int getPointCount() {
+		return points.limit() / 2;
+	}
+
+	/**
+	 * Getter of the number of triangles.
+	 * 
+	 * @return int the triangle count
+	 */
+	public int getTriangleCount() {
+		return triangles.limit() / 3;
+	}
+
+	/**
+	 * Getter of the number of cells.
+	 * 
+	 * @return int the cell count
+	 */
+	public int getCellCount() {
+		return cellTable.limit() / 2;
+	}
+
+	/**
+	 * Getter of the offset of a cell in the cell vertices.
+	 * 
+	 * @param cell
+	 *            The index of the cell.
+	 * @return int the offset in floats
+	 */
+	public int getCellOffset(int cell) {
+		return cellTable.get(cell * 2);
+	}
+
+	/**
+	 * Getter of the length of a cell in the cell vertices.
+	 * 
+	 * @param cell
+	 *            The index of the cell.
+	 * @return int the length in floats
+	 */
+	public int getCellLength(int cell) {
+		return cellTable.get(cell * 2 + 1);
+	}
+
+}
@@ -0,0 +1,467 @@
+package com.shatter.fracture;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.shatter.dt.FlatTriangulation;
+import com.shatter.dt.Triangle;
+import com.shatter.dt.Triangulator;
+
+/**
+ * This class holds a set of fracture patterns that are triangulated once, e.g.
+ * at startup. On impact a pattern is picked, rotated to the bullet direction,
+ * scaled to the asteroid and every cell is clipped against the asteroid
+ * outline (Sutherland-Hodgman, the convex cell is the clip window). So a
+ * shatter costs about as much as the clipping instead of a triangulation.
+ * 
+ * The patterns can come in several densities. A shatter picks one of the
+ * densest patterns within its fracture point count, so the point count
+ * limits the pattern fragments just as it limits the dynamic fracture
+ * points.
+ * 
+ * The library reuses its buffers and is meant to be used by one thread.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class FracturePatternLibrary {
+
+	/**
+	 * The number of vertices of the disc outline of a pattern.
+	 */
+	private static final int DISC_VERTICES = 16;
+
+	/**
+	 * The smallest radius of a disc outline vertex. The radii are jittered,
+	 * as cocircular points have no unique delaunay triangulation.
+	 */
+	private static final float DISC_MIN_RADIUS = 0.97f;
+
+	/**
+	 * The squared distance below which cell vertices are merged, tiny cell
+	 * edges have no stable direction to clip with.
+	 */
+	private static final float WELD_DISTANCE2 = 1e-8f;
+
+	/**
+	 * The share of the densest pattern within the point count down to which
+	 * the sparser patterns are picked as well.
+	 */
+	private static final float DENSITY_SPREAD = 0.75f;
+
+	/**
+	 * The patterns, sorted by their fracture point count.
+	 */
+	private final FracturePattern[] patterns;
+
+	/**
+	 * The random generator picking the patterns.
+	 */
+	private final Random rand;
+
+	/**
+	 * The transformed cell being the clip window.
+	 */
+	private final FloatArray cell = new FloatArray();
+
+	/**
+	 * The input and output polygons of a clipping pass.
+	 */
+	private FloatArray input = new FloatArray(), output = new FloatArray();
+
+	/**
+	 * The constructor for the library, triangulating new patterns.
+	 * 
+	 * @param patternCount
+	 *            The number of patterns.
+	 * @param pointCount
+	 *            The number of fracture points per pattern.
+	 * @param seed
+	 *            The seed for generating and picking the patterns.
+	 */
+	public FracturePatternLibrary(int patternCount, int pointCount, long seed) {
+		this(patternCount, new int[] { pointCount }, seed);
+	}
+
+	/**
+	 * The constructor for the library, triangulating new patterns in several
+	 * densities.
+	 * 
+	 * @param patternCount
+	 *            The number of patterns per density.
+	 * @param pointCounts
+	 *            The numbers of fracture points, one per density.
+	 * @param seed
+	 *            The seed for generating and picking the patterns.
+	 */
+	public FracturePatternLibrary(int patternCount, int[] pointCounts, long seed) {
+		this.rand = new Random(seed);
+		this.patterns = new FracturePattern[patternCount * pointCounts.length];
+		for (int k = 0; k < pointCounts.length; k++) {
+			for (int i = 0; i < patternCount; i++) {
+				patterns[k * patternCount + i] = createPattern(pointCounts[k], rand);
+			}
+		}
+		sort(patterns);
+	}
+
+	/**
+	 * The constructor for the library out of existing patterns, e.g. loaded
+	 * ones.
+	 * 
+	 * @param patterns
+	 *            The patterns.
+	 * @param seed
+	 *            The seed for picking the patterns.
+	 */
+	public FracturePatternLibrary(FracturePattern[] patterns, long seed) {
+		this.rand = new Random(seed);
+		this.patterns = patterns.clone();
+		sort(this.patterns);
+	}
+
+	/**
+	 * This method sorts patterns by their fracture point count.
+	 * 
+	 * @param patterns
+	 *            The patterns, sorted in place.
+	 */
+	private static void sort(FracturePattern[] patterns) {
+		Arrays.sort(patterns, new Comparator<FracturePattern>() {
+			@Override
+			public int compare(FracturePattern a, FracturePattern b) {
+				return a.getPointCount() - b.getPointCount();
+			}
+		});
+	}
+
+	/**
+	 * This method calculates the number of fracture points of a pattern, the
+	 * points without the disc outline.
+	 * 
+	 * @param pattern
+	 *            The pattern.
+	 * @return int the fracture point count
+	 */
+	private static int fracturePoints(FracturePattern pattern) {
+		return pattern.getPointCount() - DISC_VERTICES;
+	}
+
+	/**
+	 * This method triangulates a new fracture pattern. The fracture points
+	 * are spread around the impact point (-1, 0), denser close to it. The
+	 * cells are exact: the disc is clipped by the bisectors between every
+	 * point and its delaunay neighbours, so they tile the disc without gaps
+	 * or overlaps.
+	 * 
+	 * @param pointCount
+	 *            The number of fracture points tried.
+	 * @param rand
+	 *            The random generator.
+	 * @return FracturePattern the pattern
+	 */
+	public static FracturePattern createPattern(int pointCount, Random rand) {
+		ArrayList<Vector2> disc = new ArrayList<Vector2>();
+		for (int i = 0; i < DISC_VERTICES; i++) {
+			float radius = DISC_MIN_RADIUS + rand.nextFloat() * (1f - DISC_MIN_RADIUS);
+			disc.add(new Vector2(radius, 0f).rotate(360f / DISC_VERTICES * i));
+		}
+
+		ArrayList<Vector2> points = new ArrayList<Vector2>();
+		for (int i = 0; i < pointCount; i++) {
+			float d = rand.nextFloat();
+			Vector2 p = new Vector2(d * d * 1.6f, 0f).rotate((rand.nextFloat() - 0.5f) * 180f).add(-1f, 0f);
+			if (p.len() < 0.95f) {
+				points.add(p);
+			}
+		}
+
+		Triangulator t = new Triangulator(disc, true);
+		t.dynamicUpdatePoints(points);
+		List<Vector2> sites = t.getSnapshot().getPoints();
+		List<Triangle> triangles = t.getSnapshot().getTriangles();
+
+		FloatArray vertices = new FloatArray();
+		IntArray table = new IntArray();
+		FloatArray input = new FloatArray(), output = new FloatArray();
+		for (int i = 0; i < sites.size(); i++) {
+			Vector2 site = sites.get(i);
+			input.clear();
+			for (int k = 0; k < disc.size(); k++) {
+				input.add(disc.get(k).x);
+				input.add(disc.get(k).y);
+			}
+
+			for (int k = 0; k < triangles.size() && input.size >= 6; k++) {
+				Triangle T = triangles.get(k);
+				if (T.getA() == site || T.getB() == site || T.getC() == site) {
+					Vector2[] neighbours = { T.getA(), T.getB(), T.getC() };
+					for (Vector2 n : neighbours) {
+						if (n != site) {
+							// keep the side of the bisector closer to the site
+							float dx = n.x - site.x, dy = n.y - site.y;
+							clipHalfPlane(input, output, (site.x + n.x) / 2, (site.y + n.y) / 2, -dy, dx);
+							FloatArray swap = input;
+							input = output;
+							output = swap;
+						}
+					}
+				}
+			}
+
+			// degenerated cells are kept empty, so cell i belongs to point i
+			weld(input);
+			table.add(vertices.size);
+			if (input.size >= 6) {
+				table.add(input.size);
+				vertices.addAll(input);
+			} else {
+				table.add(0);
+			}
+		}
+
+		// the triangulation itself, with point indices
+		float[] pointArray = new float[sites.size() * 2];
+		IdentityHashMap<Vector2, Integer> indices = new IdentityHashMap<Vector2, Integer>();
+		for (int i = 0; i < sites.size(); i++) {
+			pointArray[i * 2] = sites.get(i).x;
+			pointArray[i * 2 + 1] = sites.get(i).y;
+			indices.put(sites.get(i), i);
+		}
+		int[] triangleArray = new int[triangles.size() * 3];
+		for (int i = 0; i < triangles.size(); i++) {
+			triangleArray[i * 3] = indices.get(triangles.get(i).getA());
+			triangleArray[i * 3 + 1] = indices.get(triangles.get(i).getB());
+			triangleArray[i * 3 + 2] = indices.get(triangles.get(i).getC());
+		}
+		return new FracturePattern(pointArray, triangleArray, vertices.toArray(), table.toArray());
+	}
+
+	/**
+	 * This method merges polygon vertices that are closer than the weld
+	 * distance to their predecessor.
+	 * 
+	 * @param polygon
+	 *            The polygon, changed in place.
+	 */
+	private static void weld(FloatArray polygon) {
+		float[] v = polygon.items;
+		int n = 0;
+		for (int i = 0; i < polygon.size; i += 2) {
+			if (n == 0 || Vector2.dst2(v[i], v[i + 1], v[n - 2], v[n - 1]) >= WELD_DISTANCE2) {
+				v[n++] = v[i];
+				v[n++] = v[i + 1];
+			}
+		}
+		// closing edge
+		while (n >= 4 && Vector2.dst2(v[0], v[1], v[n - 2], v[n - 1]) < WELD_DISTANCE2) {
+			n -= 2;
+		}
+		polygon.size = n;
+	}
+
+	/**
+	 * Getter of the patterns.
+	 * 
+	 * @return FracturePattern[] the patterns, sorted by their point count
+	 */
+	public FracturePattern[] getPatterns() {
+		return patterns;
+	}
+
+	/**
+	 * Getter of the fracture point count of the sparsest pattern.
+	 * 
+	 * @return int the point count
+	 */
+	public int getMinPointCount() {
+		return fracturePoints(patterns[0]);
+	}
+
+	/**
+	 * This method shatters an outline with a random pattern of any density.
+	 * 
+	 * @param outline
+	 *            The outline vertices in the local frame.
+	 * @param direction
+	 *            The bullet direction.
+	 * @return FlatTriangulation the fragments as cells with their sites,
+	 *         without triangles
+	 */
+	public FlatTriangulation fracture(float[] outline, Vector2 direction) {
+		return fracture(outline, direction, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * This method shatters an outline with one of the densest patterns within
+	 * a point count, or the sparsest pattern if none fits. The pattern is
+	 * aligned to the bullet direction and scaled to cover the outline.
+	 * 
+	 * @param outline
+	 *            The outline vertices in the local frame.
+	 * @param direction
+	 *            The bullet direction.
+	 * @param pointCount
+	 *            The most fracture points of the pattern.
+	 * @return FlatTriangulation the fragments as cells with their sites,
+	 *         without triangles
+	 */
+	public FlatTriangulation fracture(float[] outline, Vector2 direction, int pointCount) {
+		int end = patterns.length;
+		while (end > 1 && fracturePoints(patterns[end - 1]) > pointCount) {
+			end--;
+		}
+		int begin = end - 1;
+		while (begin > 0 && fracturePoints(patterns[begin - 1]) >= DENSITY_SPREAD
+				* fracturePoints(patterns[end - 1])) {
+			begin--;
+		}
+		FracturePattern pattern = patterns[begin + rand.nextInt(end - begin)];
+
+		// the disc outline covers the circle inscribed to its smallest
+		// radius, so scale that one to the farthest outline vertex
+		float radius = 0;
+		for (int i = 0; i < outline.length; i += 2) {
+			radius = Math.max(radius, outline[i] * outline[i] + outline[i + 1] * outline[i + 1]);
+		}
+		float scale = (float) Math.sqrt(radius) / (DISC_MIN_RADIUS * MathUtils.cos(MathUtils.PI / DISC_VERTICES));
+		float angle = direction.angle();
+		float cos = MathUtils.cosDeg(angle) * scale;
+		float sin = MathUtils.sinDeg(angle) * scale;
+		float flip = rand.nextBoolean() ? -1f : 1f; // mirrored for more variety
+
+		FloatBuffer patternVertices = pattern.getCellVertices();
+		FloatBuffer patternPoints = pattern.getPoints();
+		FloatArray vertices = new FloatArray();
+		IntArray table = new IntArray();
+		FloatArray sites = new FloatArray();
+		for (int c = 0; c < pattern.getCellCount(); c++) {
+			int offset = pattern.getCellOffset(c);
+			int length = pattern.getCellLength(c);
+			if (length < 6) {
+				continue; // an empty window would keep the whole outline
+			}
+			cell.clear();
+			for (int i = offset; i < offset + length; i += 2) {
+				float x = patternVertices.get(i);
+				float y = patternVertices.get(i + 1) * flip;
+				cell.add(x * cos - y * sin);
+				cell.add(x * sin + y * cos);
+			}
+
+			FloatArray clipped = clip(outline, cell);
+			if (clipped.size >= 6) {
+				table.add(vertices.size);
+				table.add(clipped.size);
+				vertices.addAll(clipped);
+
+				// the site, if it wasn't clipped away
+				float x = patternPoints.get(c * 2);
+				float y = patternPoints.get(c * 2 + 1) * flip;
+				float sx = x * cos - y * sin;
+				float sy = x * sin + y * cos;
+				if (!Intersector.isPointInPolygon(clipped.items, 0, clipped.size, sx, sy)) {
+					sx = sy = Float.NaN;
+				}
+				sites.add(sx);
+				sites.add(sy);
+			}
+		}
+		return new FlatTriangulation(new float[0], vertices.toArray(), table.toArray(), sites.toArray());
+	}
+
+	/**
+	 * This method clips a polygon against a convex polygon with the
+	 * Sutherland-Hodgman algorithm.
+	 * 
+	 * @param subject
+	 *            The polygon to clip.
+	 * @param window
+	 *            The convex clip polygon, in either orientation.
+	 * @return FloatArray the clipped polygon, valid until the next call
+	 */
+	private FloatArray clip(float[] subject, FloatArray window) {
+		input.clear();
+		input.addAll(subject);
+
+		float[] w = window.items;
+		int n = window.size;
+
+		// orientation of the window
+		float area = 0;
+		for (int i = 0; i < n; i += 2) {
+			int j = (i + 2) % n;
+			area += w[i] * w[j + 1] - w[j] * w[i + 1];
+		}
+		float sign = area < 0 ? -1f : 1f;
+
+		for (int i = 0; i < n && input.size >= 6; i += 2) {
+			int j = (i + 2) % n;
+			float ex = w[j] - w[i], ey = w[j + 1] - w[i + 1];
+			if (ex == 0 && ey == 0) {
+				continue; // a repeated vertex
+			}
+			clipHalfPlane(input, output, w[i], w[i + 1], sign * ex, sign * ey);
+			FloatArray swap = input;
+			input = output;
+			output = swap;
+		}
+		return input;
+	}
+
+	/**
+	 * This method clips a polygon against the half-plane left of a line.
+	 * 
+	 * @param input
+	 *            The polygon to clip.
+	 * @param output
+	 *            The clipped polygon, cleared first.
+	 * @param ax
+	 *            The x value of a point on the line.
+	 * @param ay
+	 *            The y value of a point on the line.
+	 * @param ex
+	 *            The x value of the line direction.
+	 * @param ey
+	 *            The y value of the line direction.
+	 */
+	private static void clipHalfPlane(FloatArray input, FloatArray output, float ax, float ay, float ex,
+			float ey) {
+		output.clear();
+		float[] in = input.items;
+		int m = input.size;
+		if (m == 0) {
+			return;
+		}
+		float px = in[m - 2], py = in[m - 1];
+		float pd = ex * (py - ay) - ey * (px - ax);
+		for (int k = 0; k < m; k += 2) {
+			float qx = in[k], qy = in[k + 1];
+			float qd = ex * (qy - ay) - ey * (qx - ax);
+			if ((pd >= 0) != (qd >= 0)) {
+				// the edge crosses the line
+				float t = pd / (pd - qd);
+				output.add(px + (qx - px) * t);
+				output.add(py + (qy - py) * t);
+			}
+			if (qd >= 0) {
+				output.add(qx);
+				output.add(qy);
+			}
+			px = qx;
+			py = qy;
+			pd = qd;
+		}
+	}
+
+}
@@ -0,0 +1,549 @@
+package com.shatter.fracture;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.shatter.dt.FlatTriangulation;
+import com.shatter.dt.Triangle;
+import com.shatter.dt.Triangulator;
+
+/**
+ * This class splits a triangulated asteroid around one or more impact points.
+ * Every triangulated point within the impact radius becomes a fragment, its
+ * cell is the median dual cell (the quads between the point, the midpoints of
+ * its edges and the centroids of its triangles), so the cells tile the mesh
+ * exactly. The rest of the asteroid stays one merged body: the outline minus
+ * the fragments, chained from the remaining boundary edges. It is never left
+ * with a hole, fragments that don't reach the outline stay part of it.
+ * 
+ * The fragments are found by walking the mesh outward from the impacts, only
+ * the triangles touching the impact radius are visited. The outline is still
+ * walked once to build the remaining body, so that part grows with the
+ * number of outline vertices, but not with the number of inner points.
+ * 
+ * The cell corners are keyed by the indices of the points they are built
+ * from (a point, the two ends of an edge, the three corners of a triangle),
+ * so the same corner gets the same key from every cell, no matter how its
+ * position was rounded.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class ImpactFracture {
+
+	/**
+	 * The bits per point index in a key.
+	 */
+	private static final int INDEX_BITS = 21;
+
+	/**
+	 * The fragments with their sites.
+	 */
+	private final FlatTriangulation fragments;
+
+	/**
+	 * The outlines of the remaining body, more than one if the fragments cut
+	 * it apart.
+	 */
+	private final ArrayList<float[]> bodies = new ArrayList<float[]>();
+
+	/**
+	 * The directed boundary edges, from point key to point keys.
+	 */
+	private final HashMap<Long, LongArray> edges = new HashMap<Long, LongArray>();
+
+	/**
+	 * The triangulation.
+	 */
+	private final Triangulator triangulator;
+
+	/**
+	 * The triangulated points, the keys refer to their indices.
+	 */
+	private final List<Vector2> points;
+
+	/**
+	 * The constructor for the impact fracture, splits the current mesh of a
+	 * constrained triangulation.
+	 * 
+	 * @param triangulator
+	 *            The constrained triangulation, with the impact points
+	 *            already inserted.
+	 * @param impacts
+	 *            The impact points in the local frame.
+	 * @param radius
+	 *            The impact radius.
+	 */
+	public ImpactFracture(Triangulator triangulator, ArrayList<Vector2> impacts, float radius) {
+		this.triangulator = triangulator;
+		this.points = triangulator.getPoints();
+		List<Vector2> outline = triangulator.getBoundary();
+		ArrayList<float[]> loops = new ArrayList<float[]>();
+
+		// the points in the impact radius and the outline vertex nearest to
+		// each impact, only the cells of outline vertices reach the outline
+		ArrayList<Vector2> hit = new ArrayList<Vector2>();
+		ObjectSet<Vector2> hitSet = new ObjectSet<Vector2>();
+		ObjectSet<Vector2> seen = new ObjectSet<Vector2>();
+		ArrayList<Vector2> queue = new ArrayList<Vector2>();
+		for (int k = 0; k < impacts.size(); k++) {
+			Vector2 impact = impacts.get(k);
+
+			// breadth first from the impact over the triangles touching the
+			// impact radius
+			seen.clear();
+			queue.clear();
+			queue.add(start(impact));
+			seen.add(queue.get(0));
+			for (int q = 0; q < queue.size(); q++) {
+				Vector2 v = queue.get(q);
+				if (v.dst2(impact) <= radius * radius && hitSet.add(v)) {
+					hit.add(v);
+				}
+				ArrayList<Triangle> incident = triangulator.getIncidentTriangles(v);
+				for (int i = 0; i < incident.size(); i++) {
+					Triangle T = incident.get(i);
+					if (triangulator.isInterior(T) && touches(T, impact, radius)) {
+						if (seen.add(T.getA())) {
+							queue.add(T.getA());
+						}
+						if (seen.add(T.getB())) {
+							queue.add(T.getB());
+						}
+						if (seen.add(T.getC())) {
+							queue.add(T.getC());
+						}
+					}
+				}
+			}
+
+			Vector2 nearest = outline.get(0);
+			for (int i = 1; i < outline.size(); i++) {
+				if (impact.dst2(outline.get(i)) < impact.dst2(nearest)) {
+					nearest = outline.get(i);
+				}
+			}
+			if (hitSet.add(nearest)) {
+				hit.add(nearest);
+			}
+		}
+
+		// the body: the outline, split at the edge midpoints like the dual
+		// cells, minus the boundary of all fragments. Fragments that don't
+		// reach the outline would leave a hole, they stay in the body.
+		boolean ccw = area(outline) > 0;
+		int n = outline.size();
+		while (true) {
+			edges.clear();
+			for (int i = 0; i < n; i++) {
+				int a = triangulator.indexOfPoint(outline.get(i));
+				int b = triangulator.indexOfPoint(outline.get(ccw ? (i + 1) % n : (i - 1 + n) % n));
+				long m = key(a, b);
+				addEdge(key(a), m);
+				addEdge(m, key(b));
+			}
+			for (int i = 0; i < hit.size(); i++) {
+				subtractDualCell(hit.get(i));
+			}
+			chain(loops);
+
+			int size = hit.size();
+			for (float[] loop : loops) {
+				if (area(loop) < 0) {
+					for (int i = hit.size() - 1; i >= 0; i--) {
+						if (Intersector.isPointInPolygon(loop, 0, loop.length, hit.get(i).x, hit.get(i).y)) {
+							hit.remove(i);
+						}
+					}
+				}
+			}
+			if (hit.size() == size) {
+				break;
+			}
+		}
+		for (float[] loop : loops) {
+			if (area(loop) > 0) {
+				bodies.add(loop);
+			}
+		}
+
+		// the fragments, one dual cell per hit point
+		FloatArray vertices = new FloatArray();
+		IntArray table = new IntArray();
+		FloatArray sites = new FloatArray();
+		for (int i = 0; i < hit.size(); i++) {
+			Vector2 site = hit.get(i);
+			edges.clear();
+			addDualCell(site);
+			chain(loops);
+			for (float[] loop : loops) {
+				if (area(loop) > 0) {
+					table.add(vertices.size);
+					table.add(loop.length);
+					vertices.addAll(loop);
+					boolean inside = Intersector.isPointInPolygon(loop, 0, loop.length, site.x, site.y);
+					sites.add(inside ? site.x : Float.NaN);
+					sites.add(inside ? site.y : Float.NaN);
+				}
+			}
+		}
+		fragments = new FlatTriangulation(new float[0], vertices.toArray(), table.toArray(), sites.toArray());
+	}
+
+	/**
+	 * Getter of the fragments.
+	 * 
+	 * @return FlatTriangulation the fragment cells with their sites
+	 */
+	public FlatTriangulation getFragments() {
+		return fragments;
+	}
+
+	/**
+	 * Getter of the remaining body.
+	 * 
+	 * @return ArrayList<float[]> the outlines of the body pieces
+	 */
+	public ArrayList<float[]> getBodies() {
+		return bodies;
+	}
+
+	/**
+	 * This method finds the vertex to start the walk from, the impact itself
+	 * if it was inserted, otherwise the nearest point.
+	 * 
+	 * @param impact
+	 *            The impact point.
+	 * @return Vector2 the vertex
+	 */
+	private Vector2 start(Vector2 impact) {
+		int index = triangulator.indexOfPoint(impact);
+		if (index >= 0) {
+			return points.get(index);
+		}
+		// the impact was dropped, e.g. too close to another point
+		Vector2 nearest = points.get(0);
+		for (int i = 1; i < points.size(); i++) {
+			if (impact.dst2(points.get(i)) < impact.dst2(nearest)) {
+				nearest = points.get(i);
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * This method checks if a triangle touches a circle.
+	 * 
+	 * @param T
+	 *            The triangle.
+	 * @param center
+	 *            The center of the circle.
+	 * @param radius
+	 *            The radius of the circle.
+	 * @return boolean true if the triangle and the circle overlap
+	 */
+	private static boolean touches(Triangle T, Vector2 center, float radius) {
+		Vector2 a = T.getA(), b = T.getB(), c = T.getC();
+		return Intersector.isPointInTriangle(center, a, b, c)
+				|| Intersector.distanceSegmentPoint(a, b, center) <= radius
+				|| Intersector.distanceSegmentPoint(b, c, center) <= radius
+				|| Intersector.distanceSegmentPoint(c, a, center) <= radius;
+	}
+
+	/**
+	 * This method adds the boundary edges of the dual cell of a point.
+	 * 
+	 * @param site
+	 *            The point.
+	 */
+	private void addDualCell(Vector2 site) {
+		ArrayList<Triangle> incident = triangulator.getIncidentTriangles(site);
+		for (int i = 0; i < incident.size(); i++) {
+			if (triangulator.isInterior(incident.get(i))) {
+				long[] quad = quad(incident.get(i), site);
+				for (int k = 0; k < 4; k++) {
+					addEdge(quad[k], quad[(k + 1) % 4]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method removes the dual cell of a point from the boundary edges.
+	 * Edges the cell shares with the boundary are removed, all others are
+	 * added reversed.
+	 * 
+	 * @param site
+	 *            The point.
+	 */
+	private void subtractDualCell(Vector2 site) {
+		ArrayList<Triangle> incident = triangulator.getIncidentTriangles(site);
+		for (int i = 0; i < incident.size(); i++) {
+			if (triangulator.isInterior(incident.get(i))) {
+				long[] quad = quad(incident.get(i), site);
+				for (int k = 0; k < 4; k++) {
+					long from = quad[k], to = quad[(k + 1) % 4];
+					if (!removeEdge(from, to)) {
+						addEdge(to, from);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method calculates the counterclockwise quad of a point in a
+	 * triangle: the point, the midpoint of the next edge, the centroid and
+	 * the midpoint of the previous edge.
+	 * 
+	 * @param T
+	 *            The triangle.
+	 * @param v
+	 *            The point, a vertex of the triangle.
+	 * @return long[] the keys of the quad points
+	 */
+	private long[] quad(Triangle T, Vector2 v) {
+		Vector2 a = T.getA(), b = T.getB(), c = T.getC();
+		if ((b.x - a.x) * (c.y - a.y) - (b.y - a.y) * (c.x - a.x) < 0) {
+			Vector2 swap = b;
+			b = c;
+			c = swap;
+		}
+		// rotate, so v comes first
+		Vector2 next, previous;
+		if (v == a) {
+			next = b;
+			previous = c;
+		} else if (v == b) {
+			next = c;
+			previous = a;
+		} else {
+			next = a;
+			previous = b;
+		}
+		int i = triangulator.indexOfPoint(v);
+		int j = triangulator.indexOfPoint(next);
+		int k = triangulator.indexOfPoint(previous);
+		return new long[] { key(i), key(i, j), key(i, j, k), key(i, k) };
+	}
+
+	/**
+	 * This method adds a directed edge, or removes its reverse if it is
+	 * already there, as both are inner edges then.
+	 * 
+	 * @param from
+	 *            The key of the start point.
+	 * @param to
+	 *            The key of the end point.
+	 */
+	private void addEdge(long from, long to) {
+		if (removeEdge(to, from)) {
+			return;
+		}
+		LongArray out = edges.get(from);
+		if (out == null) {
+			out = new LongArray(2);
+			edges.put(from, out);
+		}
+		out.add(to);
+	}
+
+	/**
+	 * This method removes a directed edge.
+	 * 
+	 * @param from
+	 *            The key of the start point.
+	 * @param to
+	 *            The key of the end point.
+	 * @return boolean true if the edge was there
+	 */
+	private boolean removeEdge(long from, long to) {
+		LongArray out = edges.get(from);
+		if (out == null) {
+			return false;
+		}
+		for (int i = 0; i < out.size; i++) {
+			if (out.get(i) == to) {
+				out.removeIndex(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * This method chains all boundary edges to closed loops, straight
+	 * vertices are left out.
+	 * 
+	 * @param loops
+	 *            The loops, cleared first.
+	 */
+	private void chain(ArrayList<float[]> loops) {
+		loops.clear();
+		FloatArray loop = new FloatArray();
+		Iterator<Map.Entry<Long, LongArray>> it = edges.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Long, LongArray> entry = it.next();
+			long start = entry.getKey();
+			while (entry.getValue().size > 0) {
+				loop.clear();
+				long current = start;
+				do {
+					loop.add(x(current));
+					loop.add(y(current));
+					LongArray out = edges.get(current);
+					if (out == null || out.size == 0) {
+						break; // open chain, can't happen on a closed boundary
+					}
+					current = out.pop();
+				} while (current != start);
+
+				simplify(loop);
+				if (loop.size >= 6) {
+					loops.add(loop.toArray());
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method removes the vertices of a loop that lie on the line
+	 * between their neighbours, e.g. the midpoints of outline edges.
+	 * 
+	 * @param loop
+	 *            The loop, changed in place.
+	 */
+	private static void simplify(FloatArray loop) {
+		for (int i = 0; i < loop.size && loop.size >= 6;) {
+			int n = loop.size;
+			int p = (i - 2 + n) % n, q = (i + 2) % n;
+			float ux = loop.get(i) - loop.get(p), uy = loop.get(i + 1) - loop.get(p + 1);
+			float vx = loop.get(q) - loop.get(i), vy = loop.get(q + 1) - loop.get(i + 1);
+			float cross = ux * vy - uy * vx;
+			if (Math.abs(cross) <= 1e-6f * (Math.abs(ux) + Math.abs(uy)) * (Math.abs(vx) + Math.abs(vy))) {
+				loop.removeRange(i, i + 1);
+			} else {
+				i += 2;
+			}
+		}
+	}
+
+	/**
+	 * This method calculates the signed area of a polygon.
+	 * 
+	 * @param polygon
+	 *            The polygon vertices.
+	 * @return float the area, positive if counterclockwise
+	 */
+	private static float area(float[] polygon) {
+		float area = 0;
+		for (int i = 0; i < polygon.length; i += 2) {
+			int j = (i + 2) % polygon.length;
+			area += polygon[i] * polygon[j + 1] - polygon[j] * polygon[i + 1];
+		}
+		return area / 2;
+	}
+
+	/**
+	 * This method calculates the signed area of a polygon.
+	 * 
+	 * @param polygon
+	 *            The polygon vertices.
+	 * @return float the area, positive if counterclockwise
+	 */
+	private static float area(List<Vector2> polygon) {
+		float area = 0;
+		for (int i = 0; i < polygon.size(); i++) {
+			Vector2 a = polygon.get(i), b = polygon.get((i + 1) % polygon.size());
+			area += a.x * b.y - b.x * a.y;
+		}
+		return area / 2;
+	}
+
+	/**
+	 * This method packs a point into a key.
+	 * 
+	 * @param i
+	 *            The index of the point.
+	 * @return long the key
+	 */
+	private static long key(int i) {
+		return i + 1L;
+	}
+
+	/**
+	 * This method packs the midpoint of an edge into a key, both directions
+	 * get the same key.
+	 * 
+	 * @param i
+	 *            The index of one end.
+	 * @param j
+	 *            The index of the other end.
+	 * @return long the key
+	 */
+	private static long key(int i, int j) {
+		return key(Math.min(i, j)) | key(Math.max(i, j)) << INDEX_BITS;
+	}
+
+	/**
+	 * This method packs the centroid of a triangle into a key, all orders of
+	 * the corners get the same key.
+	 * 
+	 * @param i
+	 *            The index of the first corner.
+	 * @param j
+	 *            The index of the second corner.
+	 * @param k
+	 *            The index of the third corner.
+	 * @return long the key
+	 */
+	private static long key(int i, int j, int k) {
+		int low = Math.min(i, Math.min(j, k));
+		int high = Math.max(i, Math.max(j, k));
+		return key(low, i + j + k - low - high) | key(high) << (2 * INDEX_BITS);
+	}
+
+	/**
+	 * This method unpacks the x value of a key, the mean of its points in
+	 * index order.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @return float the x value
+	 */
+	private float x(long key) {
+		float sum = 0;
+		int count = 0;
+		for (; key != 0; key >>>= INDEX_BITS, count++) {
+			sum += points.get((int) (key & ((1 << INDEX_BITS) - 1)) - 1).x;
+		}
+		return sum / count;
+	}
+
+	/**
+	 * This method unpacks the y value of a key, the mean of its points in
+	 * index order.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @return float the y value
+	 */
+	private float y(long key) {
+		float sum = 0;
+		int count = 0;
+		for (; key != 0; key >>>= INDEX_BITS, count++) {
+			sum += points.get((int) (key & ((1 << INDEX_BITS) - 1)) - 1).y;
+		}
+		return sum / count;
+	}
+
+}
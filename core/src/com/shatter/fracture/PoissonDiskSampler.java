@@ -0,0 +1,285 @@
+package com.shatter.fracture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * This class generates fracture points with Bridson's Poisson-disk sampling.
+ * No two points are closer than the minimum distance, so the points don't
+ * cluster and the cells are evenly sized, without slivers. A background grid
+ * with cells small enough to hold at most one point makes every distance test
+ * look at a few neighbour cells only. The radial variant lets the distance
+ * grow away from an impact, so the points are densest where it was hit.
+ * 
+ * The same seed always gives the same points. The grid is reused between
+ * calls, so an instance must only be used by one thread.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class PoissonDiskSampler {
+
+	/**
+	 * The number of candidates tried around a point before it is retired.
+	 */
+	public static final int ATTEMPTS = 30;
+
+	/**
+	 * The random generator, seeded on every call.
+	 */
+	private final Random random = new Random();
+
+	/**
+	 * The grid, the index of the point in each grid cell or -1.
+	 */
+	private int[] grid = new int[0];
+
+	/**
+	 * The accepted points, x and y per point.
+	 */
+	private final FloatArray points = new FloatArray();
+
+	/**
+	 * The indices of the points that may still get neighbours.
+	 */
+	private final IntArray active = new IntArray();
+
+	private float originX, originY, cellSize;
+	private int columns, rows;
+
+	/**
+	 * This method samples a rectangle with a fixed minimum distance.
+	 * 
+	 * @param minX
+	 *            The left border.
+	 * @param minY
+	 *            The bottom border.
+	 * @param maxX
+	 *            The right border.
+	 * @param maxY
+	 *            The top border.
+	 * @param minDistance
+	 *            The minimum distance between two points.
+	 * @param maxPoints
+	 *            The maximum number of points.
+	 * @param seed
+	 *            The seed of the sampling.
+	 * @return ArrayList<Vector2> the points
+	 */
+	public ArrayList<Vector2> sample(float minX, float minY, float maxX, float maxY, float minDistance, int maxPoints,
+			long seed) {
+		random.setSeed(seed);
+		begin(minX, minY, maxX, maxY, minDistance);
+		add(minX + random.nextFloat() * (maxX - minX), minY + random.nextFloat() * (maxY - minY));
+		return run(minX, minY, maxX, maxY, 0, 0, 0, minDistance, 0, maxPoints);
+	}
+
+	/**
+	 * This method samples a disc around an impact. The minimum distance grows
+	 * linearly from the impact to the border of the disc.
+	 * 
+	 * @param centerX
+	 *            The x value of the impact.
+	 * @param centerY
+	 *            The y value of the impact.
+	 * @param radius
+	 *            The radius of the disc.
+	 * @param minDistance
+	 *            The minimum distance between two points at the impact.
+	 * @param falloff
+	 *            The growth of the minimum distance up to the border, e.g. 2
+	 *            for three times the distance there.
+	 * @param maxPoints
+	 *            The maximum number of points.
+	 * @param seed
+	 *            The seed of the sampling.
+	 * @return ArrayList<Vector2> the points, the first one at the impact
+	 */
+	public ArrayList<Vector2> sampleRadial(float centerX, float centerY, float radius, float minDistance,
+			float falloff, int maxPoints, long seed) {
+		random.setSeed(seed);
+		begin(centerX - radius, centerY - radius, centerX + radius, centerY + radius, minDistance);
+		add(centerX, centerY);
+		return run(centerX - radius, centerY - radius, centerX + radius, centerY + radius, centerX, centerY, radius,
+				minDistance, falloff, maxPoints);
+	}
+
+	/**
+	 * This method clears the grid for a new sampling.
+	 * 
+	 * @param minX
+	 *            The left border.
+	 * @param minY
+	 *            The bottom border.
+	 * @param maxX
+	 *            The right border.
+	 * @param maxY
+	 *            The top border.
+	 * @param minDistance
+	 *            The smallest minimum distance.
+	 */
+	private void begin(float minX, float minY, float maxX, float maxY, float minDistance) {
+		// a cell diagonal shorter than the minimum distance holds at most
+		// one point
+		cellSize = minDistance / (float) Math.sqrt(2);
+		originX = minX;
+		originY = minY;
+		columns = Math.max(1, (int) Math.ceil((maxX - minX) / cellSize));
+		rows = Math.max(1, (int) Math.ceil((maxY - minY) / cellSize));
+		if (grid.length < columns * rows) {
+			grid = new int[columns * rows];
+		}
+		Arrays.fill(grid, 0, columns * rows, -1);
+		points.clear();
+		active.clear();
+	}
+
+	/**
+	 * This method grows the points from the active ones until none is left
+	 * or there are enough points.
+	 * 
+	 * @param minX
+	 *            The left border.
+	 * @param minY
+	 *            The bottom border.
+	 * @param maxX
+	 *            The right border.
+	 * @param maxY
+	 *            The top border.
+	 * @param centerX
+	 *            The x value of the impact.
+	 * @param centerY
+	 *            The y value of the impact.
+	 * @param radius
+	 *            The radius around the impact, 0 for the whole rectangle.
+	 * @param minDistance
+	 *            The minimum distance at the impact.
+	 * @param falloff
+	 *            The growth of the minimum distance up to the radius.
+	 * @param maxPoints
+	 *            The maximum number of points.
+	 * @return ArrayList<Vector2> the points
+	 */
+	private ArrayList<Vector2> run(float minX, float minY, float maxX, float maxY, float centerX, float centerY,
+			float radius, float minDistance, float falloff, int maxPoints) {
+		// the grid cells to search, enough for the largest distance
+		int reach = (int) Math.ceil(minDistance * (1 + falloff) / cellSize);
+
+		while (active.size > 0 && points.size / 2 < maxPoints) {
+			int slot = random.nextInt(active.size);
+			int index = active.get(slot);
+			float px = points.get(index * 2), py = points.get(index * 2 + 1);
+			float distance = distance(px, py, centerX, centerY, radius, minDistance, falloff);
+
+			boolean found = false;
+			for (int k = 0; k < ATTEMPTS && !found; k++) {
+				// a candidate in the ring between one and two distances
+				float angle = random.nextFloat() * MathUtils.PI2;
+				float r = distance * (1 + random.nextFloat());
+				float x = px + r * MathUtils.cos(angle);
+				float y = py + r * MathUtils.sin(angle);
+				if (x < minX || y < minY || x >= maxX || y >= maxY) {
+					continue;
+				}
+				if (radius > 0 && Vector2.dst2(x, y, centerX, centerY) > radius * radius) {
+					continue;
+				}
+				if (isFree(x, y, distance(x, y, centerX, centerY, radius, minDistance, falloff), reach)) {
+					add(x, y);
+					found = true;
+				}
+			}
+			if (!found) {
+				active.set(slot, active.peek());
+				active.pop();
+			}
+		}
+
+		ArrayList<Vector2> result = new ArrayList<Vector2>(points.size / 2);
+		for (int i = 0; i < points.size; i += 2) {
+			result.add(new Vector2(points.get(i), points.get(i + 1)));
+		}
+		return result;
+	}
+
+	/**
+	 * This method calculates the minimum distance at a position.
+	 * 
+	 * @param x
+	 *            The x value.
+	 * @param y
+	 *            The y value.
+	 * @param centerX
+	 *            The x value of the impact.
+	 * @param centerY
+	 *            The y value of the impact.
+	 * @param radius
+	 *            The radius around the impact, 0 for a fixed distance.
+	 * @param minDistance
+	 *            The minimum distance at the impact.
+	 * @param falloff
+	 *            The growth of the minimum distance up to the radius.
+	 * @return float the minimum distance
+	 */
+	private static float distance(float x, float y, float centerX, float centerY, float radius, float minDistance,
+			float falloff) {
+		if (radius <= 0) {
+			return minDistance;
+		}
+		return minDistance * (1 + falloff * Math.min(1, Vector2.dst(x, y, centerX, centerY) / radius));
+	}
+
+	/**
+	 * This method tests the neighbour grid cells for points closer than the
+	 * minimum distance.
+	 * 
+	 * @param x
+	 *            The x value of the candidate.
+	 * @param y
+	 *            The y value of the candidate.
+	 * @param distance
+	 *            The minimum distance of the candidate.
+	 * @param reach
+	 *            The number of grid cells to search in every direction.
+	 * @return boolean true if no point is too close
+	 */
+	private boolean isFree(float x, float y, float distance, int reach) {
+		int column = (int) ((x - originX) / cellSize);
+		int row = (int) ((y - originY) / cellSize);
+		for (int j = Math.max(0, row - reach); j <= Math.min(rows - 1, row + reach); j++) {
+			for (int i = Math.max(0, column - reach); i <= Math.min(columns - 1, column + reach); i++) {
+				int other = grid[j * columns + i];
+				if (other >= 0
+						&& Vector2.dst2(x, y, points.get(other * 2), points.get(other * 2 + 1)) < distance * distance) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * This method accepts a point.
+	 * 
+	 * @param x
+	 *            The x value.
+	 * @param y
+	 *            The y value.
+	 */
+	private void add(float x, float y) {
+		int column = Math.min(columns - 1, (int) ((x - originX) / cellSize));
+		int row = Math.min(rows - 1, (int) ((y - originY) / cellSize));
+		int index = points.size / 2;
+		grid[row * columns + column] = index;
+		points.add(x);
+		points.add(y);
+		active.add(index);
+	}
+
+}
@@ -7,8 +7,15 @@ import com.shatter.component.Fracture;
 import com.shatter.component.Movement;
 import com.shatter.component.Position;
 import com.shatter.component.Ship;
+import com.shatter.component.Visual;
+import com.shatter.fracture.FractureDetail;
+import com.shatter.fracture.FracturePatternLibrary;
+import com.shatter.fracture.PoissonDiskSampler;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 import com.badlogic.ashley.core.ComponentMapper;
 import com.badlogic.ashley.core.Engine;
@@ -18,10 +25,9 @@ import com.badlogic.ashley.core.Family;
 import com.badlogic.ashley.utils.ImmutableArray;
 //import com.badlogic.gdx.Gdx;
 //import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Timer;
-import com.badlogic.gdx.utils.Timer.Task;
 
 /**
  * This class handles and detects collision as well as performs the dynamic
@@ -37,7 +43,19 @@ public class CollisionSystem extends EntitySystem {
 
 	private Engine engine;
 	private World world;
+	private FractureSystem fractureSystem;
+	private ParticleSystem particleSystem;
+	private FracturePatternLibrary patterns;
 	private int pointCount = 10;
+	private int particleCount = 100;
+	private boolean impact = true;
+	private float impactRadius = 0.4f;
+	private FractureDetail detail;
+	private PoissonDiskSampler sampler = new PoissonDiskSampler();
+	private Random seeds = new Random();
+	private LinkedHashMap<Entity, ArrayList<Vector2>> impacts = new LinkedHashMap<Entity, ArrayList<Vector2>>();
+	private HashMap<Entity, Vector2> directions = new HashMap<Entity, Vector2>();
+	private HashMap<Entity, Vector2> firstDirections = new HashMap<Entity, Vector2>();
 	//private FileHandle logFile = Gdx.files.local("log.ser");
 
 	/**
@@ -47,10 +65,16 @@ public class CollisionSystem extends EntitySystem {
 	 *            The engine of the game.
 	 * @param world
 	 *            The world of the game.
+	 * @param fractureSystem
+	 *            The system running the fracture jobs.
+	 * @param particleSystem
+	 *            The system of the particles.
 	 */
-	public CollisionSystem(Engine engine, World world) {
+	public CollisionSystem(Engine engine, World world, FractureSystem fractureSystem, ParticleSystem particleSystem) {
 		this.engine = engine;
 		this.world = world;
+		this.fractureSystem = fractureSystem;
+		this.particleSystem = particleSystem;
 	}
 
 	/**
@@ -85,6 +109,23 @@ public class CollisionSystem extends EntitySystem {
 				}
 			}
 		}
+
+		// all hits of an asteroid in this frame shatter it once
+		for (Map.Entry<Entity, ArrayList<Vector2>> entry : impacts.entrySet()) {
+			Entity asteroid = entry.getKey();
+			Vector2 direction = directions.get(asteroid);
+			if (direction.len2() < MathUtils.FLOAT_ROUNDING_ERROR) {
+				// the bullets cancel each other out, the first one decides
+				direction.set(firstDirections.get(asteroid));
+			}
+			// a shattered asteroid is removed when its fragments are spawned
+			if (!shatterAsteroid(asteroid, entry.getValue(), direction.nor())) {
+				engine.removeEntity(asteroid);
+			}
+		}
+		impacts.clear();
+		directions.clear();
+		firstDirections.clear();
 	}
 
 	/**
@@ -123,7 +164,6 @@ public class CollisionSystem extends EntitySystem {
 		Entity ship = null;
 		Entity bullet = null;
 		Entity asteroid = null;
-		Vector2 bulletDirection = null;
 
 		for (Entity e : entities) {
 			if (e.getComponent(Bullet.class) != null)
@@ -137,78 +177,130 @@ public class CollisionSystem extends EntitySystem {
 		if (ship != null) {
 			engine.removeEntity(ship);
 		}
-		if (bullet != null) {
-			bulletDirection = bullet.getComponent(Movement.class).vel.nor();
-			engine.removeEntity(bullet);
+		if (asteroid != null && !impacts.containsKey(asteroid)) {
+			createParticles(asteroid);
 		}
-		if (asteroid != null) {
-			if (bulletDirection != null) {
-				shatterAsteroid(asteroid, bulletDirection);
+		if (bullet != null) {
+			if (asteroid != null) {
+				// gathered, the asteroid is shattered after all collisions
+				ArrayList<Vector2> hits = impacts.get(asteroid);
+				if (hits == null) {
+					hits = new ArrayList<Vector2>();
+					impacts.put(asteroid, hits);
+					directions.put(asteroid, new Vector2());
+					firstDirections.put(asteroid, bullet.getComponent(Movement.class).vel.cpy().nor());
+				}
+				hits.add(bullet.getComponent(Position.class).pos.cpy());
+				directions.get(asteroid).add(bullet.getComponent(Movement.class).vel.cpy().nor());
 			}
-			createParticles(asteroid);
+			engine.removeEntity(bullet);
+		} else if (asteroid != null && !impacts.containsKey(asteroid)) {
 			engine.removeEntity(asteroid);
 		}
 	}
 
 	/**
-	 * This method shatters an asteroid and dynamically adds fracture points in
-	 * the given sector
+	 * This method shatters an asteroid with a fracture pattern if there is a
+	 * pattern library, the densest one within the point count. Otherwise it queues an impact fracture with fracture
+	 * points around the impacts or, without impact fracturing, adding fracture
+	 * points in the given sector to the fracture system. Any number of hits
+	 * costs one triangulation update and one spawn pass.
 	 * 
 	 * @param asteroid
 	 *            The asteroid entity.
+	 * @param bulletPositions
+	 *            The positions of all bullets that hit the asteroid.
 	 * @param bulletDirection
-	 *            The bullets direction.
+	 *            The mean direction of the bullets.
+	 * @return boolean true if the asteroid was handed to the fracture system
 	 */
-	public void shatterAsteroid(Entity asteroid, Vector2 bulletDirection) {
-		if (asteroid.getComponent(Fracture.class) != null) {
+	public boolean shatterAsteroid(Entity asteroid, ArrayList<Vector2> bulletPositions, Vector2 bulletDirection) {
+		Fracture fract = asteroid.getComponent(Fracture.class);
+		if (fract != null) {
 
-			Fracture fract = asteroid.getComponent(Fracture.class);
+			// the bullets direction in the local frame of the asteroid
+			Position pose = pm.get(asteroid);
+			Vector2 direction = bulletDirection.cpy().rotate(-pose.angle);
 
-			// sector fracturing
-			ArrayList<Vector2> p = new ArrayList<Vector2>();
-			Random rand = new Random();
-			for (int i = 0; i < pointCount; i++) {
-				float x = rand.nextFloat() * 1.2f;
-				float y = rand.nextFloat() * 1.2f;
-				if (bulletDirection.x > 0) {
-					x = -x; // invert bulletDirection x
-				}
-				if (bulletDirection.y > 0) {
-					y = -y; // invert bulletDirection y
-				}
-				p.add(new Vector2(x, y));
-			}
+			if (patterns != null) {
+				// a precomputed pattern clipped to the outline
+				fractureSystem.shatter(asteroid, patterns.fracture(asteroid.getComponent(Visual.class).VERTICES,
+						direction, pointCount(asteroid)));
+			} else if (impact) {
+				// the points are shared by all impacts, so more hits don't
+				// mean more work
+				float radius = impactRadius * cm.get(asteroid).radius;
+				int count = Math.max(1, pointCount(asteroid) / bulletPositions.size());
+				float distance = 0.4f * (float) Math.sqrt(MathUtils.PI * radius * radius / count);
+				ArrayList<Vector2> locals = new ArrayList<Vector2>();
+				ArrayList<Vector2> p = new ArrayList<Vector2>();
+				for (Vector2 position : bulletPositions) {
+					// the impact in the local frame of the asteroid, moved
+					// inside the outline if the bullet only touched it
+					Vector2 local = position.cpy().sub(pose.pos).rotate(-pose.angle);
+					for (int i = 0; i < 10 && !Intersector.isPointInPolygon(fract.outline, 0, fract.outline.length,
+							local.x, local.y); i++) {
+						local.scl(0.8f);
+					}
+					locals.add(local);
 
-			// dynamic update test and time measuring
-			//long startTime = System.nanoTime();
-			fract.triangulator.dynamicUpdatePoints(p);
-			//long stopTime = System.nanoTime();
-			//logFile.writeString("" + ((stopTime - startTime) / 1000000.0), true);
-			//logFile.writeString("" + Gdx.graphics.getFramesPerSecond(), true);
-			//logFile.writeString("\n", true);
-
-			// it was a big one with voronoi cells, spawn new fractures and
-			// remove them within 5 seconds
-			for (int i = 0; i < fract.triangulator.getVDiagram().size(); i++) {
-				float[] vertices = fract.triangulator.getVDiagram().get(i);
-				if (vertices.length > 2) { // just to be sure
-					Entity e = world.createAsteroidVD(new Vector2(asteroid.getComponent(Position.class).pos.x,
-							asteroid.getComponent(Position.class).pos.y), vertices);
-					Timer.schedule(new Task() {
-						@Override
-						public void run() {
-							engine.removeEntity(e);
-						}
-					}, (float) (Math.random() * 5.0f));
+					// evenly spaced fracture points, densest at the impact and
+					// falling off to the impact radius
+					p.addAll(sampler.sampleRadial(local.x, local.y, radius, distance, 1.5f, count, seeds.nextLong()));
 				}
-			}
 
-			// spawn new asteroid because one was destroyed
-			if ((int) (Math.random() * 3) % 2 != 0) {
-				world.createAsteroid(new Vector2(MathUtils.random(-50, 50), MathUtils.random(-50, 50)), 1.5f);
+				// only the cells around the impacts break off, the rest stays
+				// one body, so no new asteroid is needed
+				fractureSystem.shatter(asteroid, p, locals, radius);
+				return true;
 			} else {
-				world.createAsteroid(new Vector2(MathUtils.random(-50, 50), MathUtils.random(-50, 50)), 2f);
+				// sector fracturing, evenly spaced points in the sector
+				// opposite to the bullets direction
+				float minX = direction.x > 0 ? -1.2f : 0;
+				float minY = direction.y > 0 ? -1.2f : 0;
+				int count = pointCount(asteroid);
+				float distance = 0.8f * (float) Math.sqrt(1.2f * 1.2f / count);
+				ArrayList<Vector2> p = sampler.sample(minX, minY, minX + 1.2f, minY + 1.2f, distance, count,
+						seeds.nextLong());
+
+				// the fracture system freezes the asteroid and spawns the new
+				// fractures once the voronoi cells are ready
+				fractureSystem.shatter(asteroid, p);
+			}
+
+			// fragments of fragments don't bring new asteroids
+			if (fract.depth == 0) {
+				spawnAsteroid();
 			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * This method chooses the number of fracture points for an asteroid, up
+	 * to the dynamic point count.
+	 * 
+	 * @param asteroid
+	 *            The asteroid entity.
+	 * @return int the point count
+	 */
+	private int pointCount(Entity asteroid) {
+		if (detail == null) {
+			return pointCount;
+		}
+		return detail.pointCount(asteroid.getComponent(Fracture.class).outline, pm.get(asteroid).pos, pointCount,
+				fractureSystem.getPendingCount());
+	}
+
+	/**
+	 * This method spawns a new asteroid because one was destroyed.
+	 */
+	private void spawnAsteroid() {
+		if ((int) (Math.random() * 3) % 2 != 0) {
+			world.createAsteroid(new Vector2(MathUtils.random(-50, 50), MathUtils.random(-50, 50)), 1.5f);
+		} else {
+			world.createAsteroid(new Vector2(MathUtils.random(-50, 50), MathUtils.random(-50, 50)), 2f);
 		}
 	}
 
@@ -219,9 +311,10 @@ public class CollisionSystem extends EntitySystem {
 	 *            The entity.
 	 */
 	public void createParticles(Entity e) {
-		for (int i = 0; i < 100; i++) {
-			world.createParticle(e.getComponent(Position.class).pos.x, e.getComponent(Position.class).pos.y,
-					(float) (Math.random() * 360), (float) (Math.random() * 20));
+		Vector2 pos = e.getComponent(Position.class).pos;
+		for (int i = 0; i < particleCount; i++) {
+			particleSystem.emit(pos.x, pos.y, (float) (Math.random() * 360), (float) (Math.random() * 30),
+					(float) (Math.random() * 20) / 80);
 		}
 	}
 
@@ -234,6 +327,128 @@ public class CollisionSystem extends EntitySystem {
 		return pointCount;
 	}
 
+	/**
+	 * Setter for the dynamic point count.
+	 * 
+	 * @param pointCount
+	 *            The point count, between 1 and 1000.
+	 */
+	public void setPointCount(int pointCount) {
+		this.pointCount = Math.max(1, Math.min(1000, pointCount));
+	}
+
+	/**
+	 * Getter for the number of particles per destroyed entity.
+	 * 
+	 * @return int the particle count
+	 */
+	public int getParticleCount() {
+		return particleCount;
+	}
+
+	/**
+	 * Setter for the number of particles per destroyed entity.
+	 * 
+	 * @param particleCount
+	 *            The particle count.
+	 */
+	public void setParticleCount(int particleCount) {
+		this.particleCount = particleCount;
+	}
+
+	/**
+	 * Getter for the fracture pattern library.
+	 * 
+	 * @return FracturePatternLibrary the patterns or null if asteroids are
+	 *         shattered by dynamic points
+	 */
+	public FracturePatternLibrary getPatterns() {
+		return patterns;
+	}
+
+	/**
+	 * Setter for the fracture pattern library.
+	 * 
+	 * @param patterns
+	 *            The patterns, null to shatter asteroids by dynamic points.
+	 */
+	public void setPatterns(FracturePatternLibrary patterns) {
+		this.patterns = patterns;
+	}
+
+	/**
+	 * Getter for the fracture detail.
+	 * 
+	 * @return FractureDetail the detail or null if every asteroid gets the
+	 *         dynamic point count
+	 */
+	public FractureDetail getDetail() {
+		return detail;
+	}
+
+	/**
+	 * Setter for the fracture detail.
+	 * 
+	 * @param detail
+	 *            The detail, null to give every asteroid the dynamic point
+	 *            count.
+	 */
+	public void setDetail(FractureDetail detail) {
+		this.detail = detail;
+	}
+
+	/**
+	 * Setter for the seed of the fracture points, the same seed gives the
+	 * same fracture points for the same hits.
+	 * 
+	 * @param seed
+	 *            The seed.
+	 */
+	public void setSeed(long seed) {
+		seeds.setSeed(seed);
+	}
+
+	/**
+	 * Gets the impact flag.
+	 * 
+	 * @return boolean true if asteroids only break around the impact when
+	 *         shattered by dynamic points
+	 */
+	public boolean isImpact() {
+		return impact;
+	}
+
+	/**
+	 * Sets the impact flag.
+	 * 
+	 * @param impact
+	 *            True if asteroids only break around the impact when
+	 *            shattered by dynamic points, false to shatter them
+	 *            completely.
+	 */
+	public void setImpact(boolean impact) {
+		this.impact = impact;
+	}
+
+	/**
+	 * Getter for the impact radius.
+	 * 
+	 * @return float the impact radius relative to the collider radius
+	 */
+	public float getImpactRadius() {
+		return impactRadius;
+	}
+
+	/**
+	 * Setter for the impact radius.
+	 * 
+	 * @param impactRadius
+	 *            The impact radius relative to the collider radius.
+	 */
+	public void setImpactRadius(float impactRadius) {
+		this.impactRadius = impactRadius;
+	}
+
 	/**
 	 * Increments the dynamic point count.
 	 */
@@ -0,0 +1,125 @@
+package com.shatter.system;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import com.shatter.component.Fracture;
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+
+/**
+ * This class keeps the triangulations of the fracture components under a
+ * memory budget. If the built triangulations take more, the least recently
+ * used ones that weren't used for a while are dropped. They are rebuilt from
+ * the outline on demand.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class FractureCacheSystem extends EntitySystem {
+
+	/**
+	 * The estimated size of a triangulation per point in bytes: the point,
+	 * about two triangles with circumcenter and midpoints, the incidence
+	 * lists, the voronoi cell and the snapshot lists.
+	 */
+	private static final int BYTES_PER_POINT = 600;
+
+	private ImmutableArray<Entity> entities;
+	private ComponentMapper<Fracture> fm = ComponentMapper.getFor(Fracture.class);
+	private ArrayList<Fracture> idle = new ArrayList<Fracture>();
+	private Comparator<Fracture> leastRecentlyUsed = new Comparator<Fracture>() {
+		@Override
+		public int compare(Fracture a, Fracture b) {
+			return a.lastUsed < b.lastUsed ? -1 : (a.lastUsed == b.lastUsed ? 0 : 1);
+		}
+	};
+	private long budget;
+	private long idleTime;
+	private long used;
+
+	/**
+	 * The constructor of this entitysystem.
+	 * 
+	 * @param budgetBytes
+	 *            The memory budget of all triangulations in bytes.
+	 * @param idleSeconds
+	 *            The time a triangulation has to be unused before it can be
+	 *            dropped.
+	 */
+	public FractureCacheSystem(long budgetBytes, float idleSeconds) {
+		this.budget = budgetBytes;
+		this.idleTime = (long) (idleSeconds * 1000000000L);
+	}
+
+	/**
+	 * Gets the entities when added to engine.
+	 */
+	public void addedToEngine(Engine engine) {
+		this.entities = engine.getEntitiesFor(Family.all(Fracture.class).get());
+	}
+
+	/**
+	 * Sets the entities to null when removed from engine.
+	 */
+	public void removedFromEngine(Engine engine) {
+		this.entities = null;
+	}
+
+	/**
+	 * The update method of the entity system.
+	 */
+	public void update(float deltaTime) {
+		long now = System.nanoTime();
+		used = 0;
+		idle.clear();
+		for (int i = 0; i < entities.size(); i++) {
+			Fracture f = fm.get(entities.get(i));
+			if (f.triangulator != null) {
+				used += estimate(f);
+				if (!f.pinned && now - f.lastUsed >= idleTime) {
+					idle.add(f);
+				}
+			}
+		}
+		if (used <= budget) {
+			return;
+		}
+
+		Collections.sort(idle, leastRecentlyUsed);
+		for (int i = 0; i < idle.size() && used > budget; i++) {
+			long size = estimate(idle.get(i));
+			if (idle.get(i).evict()) {
+				used -= size;
+			}
+		}
+		idle.clear();
+	}
+
+	/**
+	 * This method estimates the memory of a built triangulation.
+	 * 
+	 * @param f
+	 *            The fracture component.
+	 * @return long the size in bytes
+	 */
+	private long estimate(Fracture f) {
+		return (long) f.triangulator.getSnapshot().getPoints().size() * BYTES_PER_POINT;
+	}
+
+	/**
+	 * Getter for the estimated memory of the triangulations after the last
+	 * update.
+	 * 
+	 * @return long the size in bytes
+	 */
+	public long getUsedBytes() {
+		return used;
+	}
+
+}
@@ -0,0 +1,459 @@
+package com.shatter.system;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.shatter.World;
+import com.shatter.component.Collider;
+import com.shatter.component.Fracture;
+import com.shatter.component.Lifetime;
+import com.shatter.component.Movement;
+import com.shatter.dt.FlatTriangulation;
+import com.shatter.fracture.FractureJob;
+import com.shatter.fracture.ImpactFracture;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.ObjectSet;
+
+/**
+ * This class runs the fracture work of shattered asteroids, so the game never
+ * waits on a whole triangulation. A shattered asteroid stays frozen until its
+ * job is done.
+ * 
+ * With a worker pool the jobs run on other threads, the finished jobs are
+ * applied at the start of the next frame and all their fragments are spawned
+ * in one batch. Without one the jobs run on the game thread in resumable
+ * steps under a per-frame time budget, so several asteroids shattered in the
+ * same frame spread their cost over the next frames and the fragments appear
+ * as their cells are built.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class FractureSystem extends EntitySystem implements EntityListener {
+	private Engine engine;
+	private World world;
+	private ExecutorService executor;
+	private ConcurrentLinkedQueue<FractureJob> finished = new ConcurrentLinkedQueue<FractureJob>();
+	private LinkedList<FractureJob> scheduled = new LinkedList<FractureJob>();
+	private long budget;
+	private int pending;
+	private int overruns;
+	private float lastMillis;
+	private float lastJobMillis;
+	private int finishedCount;
+	private ObjectSet<Entity> debris = new ObjectSet<Entity>();
+	private int maxDebris = Integer.MAX_VALUE;
+
+	/**
+	 * The constructor of this entitysystem, using one worker thread less than
+	 * there are processors.
+	 * 
+	 * @param world
+	 *            The world of the game.
+	 */
+	public FractureSystem(World world) {
+		this(world, Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "fracture-worker");
+						t.setDaemon(true);
+						return t;
+					}
+				}));
+	}
+
+	/**
+	 * The constructor of this entitysystem.
+	 * 
+	 * @param world
+	 *            The world of the game.
+	 * @param executor
+	 *            The worker pool for the fracture jobs.
+	 */
+	public FractureSystem(World world, ExecutorService executor) {
+		this.world = world;
+		this.executor = executor;
+	}
+
+	/**
+	 * The constructor of this entitysystem, running the fracture jobs on the
+	 * game thread.
+	 * 
+	 * @param world
+	 *            The world of the game.
+	 * @param budgetMillis
+	 *            The time per frame for fracture work in milliseconds.
+	 */
+	public FractureSystem(World world, float budgetMillis) {
+		this.world = world;
+		this.budget = (long) (budgetMillis * 1000000L);
+	}
+
+	/**
+	 * Gets the engine when added to engine.
+	 */
+	public void addedToEngine(Engine engine) {
+		this.engine = engine;
+		// expired debris is removed by the lifetime system
+		engine.addEntityListener(Family.all(Lifetime.class).get(), this);
+	}
+
+	/**
+	 * Stops listening to the engine when removed from engine.
+	 */
+	public void removedFromEngine(Engine engine) {
+		engine.removeEntityListener(this);
+		debris.clear();
+	}
+
+	/**
+	 * Nothing to do for a new entity with a lifetime.
+	 */
+	@Override
+	public void entityAdded(Entity entity) {
+	}
+
+	/**
+	 * Forgets an expired debris entity.
+	 */
+	@Override
+	public void entityRemoved(Entity entity) {
+		debris.remove(entity);
+	}
+
+	/**
+	 * This method freezes an asteroid and queues adding the fracture points
+	 * to its triangulation. The asteroid is removed when its job is done.
+	 * 
+	 * @param asteroid
+	 *            The asteroid entity with a fracture component.
+	 * @param points
+	 *            The fracture points in the asteroid's local frame.
+	 */
+	public void shatter(Entity asteroid, ArrayList<Vector2> points) {
+		Fracture fract = prepare(asteroid);
+		submit(new FractureJob(asteroid, fract.triangulator, fract.outline, fract.seeds, points));
+	}
+
+	/**
+	 * This method freezes an asteroid and queues an impact fracture: the
+	 * fracture points are added to its triangulation, but only the ones within
+	 * the radius around the impacts become fragments, the rest of the asteroid
+	 * stays one body. All impacts of a frame go into one job. The asteroid is
+	 * replaced when its job is done.
+	 * 
+	 * @param asteroid
+	 *            The asteroid entity with a fracture component.
+	 * @param points
+	 *            The fracture points in the asteroid's local frame.
+	 * @param impacts
+	 *            The impact points in the asteroid's local frame.
+	 * @param radius
+	 *            The impact radius.
+	 */
+	public void shatter(Entity asteroid, ArrayList<Vector2> points, ArrayList<Vector2> impacts, float radius) {
+		Fracture fract = prepare(asteroid);
+		submit(new FractureJob(asteroid, fract.triangulator, fract.outline, fract.seeds, points, impacts, radius));
+	}
+
+	/**
+	 * This method freezes an asteroid for its fracture job.
+	 * 
+	 * @param asteroid
+	 *            The asteroid entity with a fracture component.
+	 * @return Fracture the fracture component
+	 */
+	private Fracture prepare(Entity asteroid) {
+		// frozen: no more collisions and no more movement
+		asteroid.remove(Collider.class);
+		asteroid.remove(Movement.class);
+
+		// pinned, so the triangulation isn't evicted while the job uses it
+		Fracture fract = asteroid.getComponent(Fracture.class);
+		fract.setPinned(true);
+		return fract;
+	}
+
+	/**
+	 * This method queues a fracture job, on the worker pool if there is one.
+	 * 
+	 * @param job
+	 *            The fracture job.
+	 */
+	private void submit(final FractureJob job) {
+		pending++;
+		if (executor == null) {
+			scheduled.add(job);
+			return;
+		}
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				job.run();
+				finished.add(job);
+			}
+		});
+	}
+
+	/**
+	 * This method shatters an asteroid into already calculated cells, e.g.
+	 * the ones of a fracture pattern. The fragments are spawned and the
+	 * asteroid is removed at once.
+	 * 
+	 * @param asteroid
+	 *            The asteroid entity.
+	 * @param cells
+	 *            The cells in the asteroid's local frame.
+	 */
+	public void shatter(Entity asteroid, FlatTriangulation cells) {
+		spawnFragments(asteroid, cells);
+		engine.removeEntity(asteroid);
+	}
+
+	/**
+	 * The update method of the entity system, applies all finished jobs or
+	 * runs the scheduled ones within the budget.
+	 */
+	public void update(float deltaTime) {
+		FractureJob job;
+		while ((job = finished.poll()) != null) {
+			pending--;
+			finish(job);
+		}
+
+		if (scheduled.isEmpty()) {
+			lastMillis = 0;
+			return;
+		}
+
+		long start = System.nanoTime();
+		long deadline = start + budget;
+		while (!scheduled.isEmpty()) {
+			job = scheduled.getFirst();
+			boolean done = job.step(deadline);
+
+			// spawn the cells built so far
+			if (!job.isFailed() && !job.isImpact()) {
+				List<float[]> cells = job.getTriangulator().getVDiagram();
+				List<Vector2> sites = job.getTriangulator().getPoints();
+				int built = job.getTriangulator().getCellCount();
+				for (int i = job.getSpawned(); i < built; i++) {
+					spawnFragment(job.getAsteroid(), cells.get(i), 0, cells.get(i).length, sites.get(i).x,
+							sites.get(i).y);
+				}
+				job.setSpawned(built);
+			}
+
+			if (!done) {
+				break;
+			}
+			scheduled.removeFirst();
+			pending--;
+			finish(job);
+			if (System.nanoTime() - deadline >= 0) {
+				break;
+			}
+		}
+
+		long used = System.nanoTime() - start;
+		lastMillis = used / 1000000f;
+		if (used > budget) {
+			overruns++;
+		}
+	}
+
+	/**
+	 * This method spawns the not yet spawned pieces of a done job and removes
+	 * its asteroid. If the job failed, the asteroid is replaced by one body
+	 * with its outline instead, so it doesn't vanish.
+	 * 
+	 * @param job
+	 *            The done job.
+	 */
+	private void finish(FractureJob job) {
+		lastJobMillis = job.getMillis();
+		finishedCount++;
+		if (job.isFailed()) {
+			// unless some of its cells are already out
+			if (job.getSpawned() == 0) {
+				spawnBody(job.getAsteroid(), job.getAsteroid().getComponent(Fracture.class).outline);
+			}
+		} else if (job.isImpact()) {
+			ImpactFracture impact = job.getImpactFracture();
+			spawnFragments(job.getAsteroid(), impact.getFragments());
+			for (float[] body : impact.getBodies()) {
+				spawnBody(job.getAsteroid(), body);
+			}
+		} else if (job.getCells() != null) {
+			spawnFragments(job.getAsteroid(), job.getCells());
+		}
+		engine.removeEntity(job.getAsteroid());
+	}
+
+	/**
+	 * This method spawns all cells of an asteroid as new fractures.
+	 * 
+	 * @param asteroid
+	 *            The shattered asteroid.
+	 * @param cells
+	 *            The cells in the asteroid's local frame.
+	 */
+	private void spawnFragments(Entity asteroid, FlatTriangulation cells) {
+		float[] sites = cells.getCellSites();
+		for (int i = 0; i < cells.getCellCount(); i++) {
+			spawnFragment(asteroid, cells.getCellVertices(), cells.getCellOffset(i), cells.getCellLength(i),
+					sites[i * 2], sites[i * 2 + 1]);
+		}
+	}
+
+	/**
+	 * This method spawns a voronoi cell of an asteroid as new fracture. A
+	 * fragment that can't be shattered again is removed within 5 seconds.
+	 * 
+	 * @param asteroid
+	 *            The shattered asteroid.
+	 * @param vertices
+	 *            The array holding the cell vertices.
+	 * @param offset
+	 *            The offset of the cell in the array.
+	 * @param length
+	 *            The number of floats of the cell.
+	 * @param siteX
+	 *            The x value of the site of the cell, NaN if it has none.
+	 * @param siteY
+	 *            The y value of the site of the cell, NaN if it has none.
+	 */
+	private void spawnFragment(Entity asteroid, float[] vertices, int offset, int length, float siteX,
+			float siteY) {
+		if (length < 6) { // at least a triangle, just to be sure
+			return;
+		}
+		Entity e = world.createFragment(asteroid, vertices, offset, length, siteX, siteY);
+		if (e.getComponent(Fracture.class) == null) {
+			expire(e);
+		}
+	}
+
+	/**
+	 * This method spawns the remaining body of an asteroid shattered around
+	 * an impact. A body that can't be shattered again is removed within 5
+	 * seconds.
+	 * 
+	 * @param asteroid
+	 *            The shattered asteroid.
+	 * @param outline
+	 *            The outline of the body in the asteroid's local frame.
+	 */
+	private void spawnBody(Entity asteroid, float[] outline) {
+		Entity e = world.createBody(asteroid, outline);
+		if (e.getComponent(Fracture.class) == null) {
+			expire(e);
+		}
+	}
+
+	/**
+	 * This method removes a fragment that can't be shattered again within 5
+	 * seconds, or at once if there are already too many of them.
+	 * 
+	 * @param e
+	 *            The fragment entity.
+	 */
+	private void expire(Entity e) {
+		if (debris.size >= maxDebris) {
+			engine.removeEntity(e);
+			return;
+		}
+		debris.add(e);
+		world.setLifetime(e, (float) (Math.random() * 5.0f));
+	}
+
+	/**
+	 * Getter for the number of queued or running fracture jobs.
+	 * 
+	 * @return int the pending job count
+	 */
+	public int getPendingCount() {
+		return pending;
+	}
+
+	/**
+	 * Getter for the number of frames the fracture work took longer than the
+	 * budget, only counted without a worker pool.
+	 * 
+	 * @return int the overrun count
+	 */
+	public int getOverrunCount() {
+		return overruns;
+	}
+
+	/**
+	 * Getter for the time of the fracture work in the last frame, without a
+	 * worker pool.
+	 * 
+	 * @return float the time in milliseconds
+	 */
+	public float getLastMillis() {
+		return lastMillis;
+	}
+
+	/**
+	 * Getter for the time the last finished fracture job took, summed over
+	 * all its steps.
+	 * 
+	 * @return float the time in milliseconds
+	 */
+	public float getLastJobMillis() {
+		return lastJobMillis;
+	}
+
+	/**
+	 * Getter for the number of finished fracture jobs.
+	 * 
+	 * @return int the finished job count
+	 */
+	public int getFinishedCount() {
+		return finishedCount;
+	}
+
+	/**
+	 * Getter for the number of fragments that can't be shattered again and
+	 * are waiting for their removal.
+	 * 
+	 * @return int the debris count
+	 */
+	public int getDebrisCount() {
+		return debris.size;
+	}
+
+	/**
+	 * Setter for the most fragments that can't be shattered again, more are
+	 * removed at once.
+	 * 
+	 * @param maxDebris
+	 *            The debris cap.
+	 */
+	public void setMaxDebris(int maxDebris) {
+		this.maxDebris = maxDebris;
+	}
+
+	/**
+	 * Stops the worker pool.
+	 */
+	public void dispose() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.shatter.system;
+
+import com.shatter.component.Lifetime;
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * This class removes entities when their lifetime is over. The entities are
+ * kept on a hashed timing wheel: a ring of slots, one per tick, and every
+ * entity waits in the slot of the tick it expires in. Scheduling and
+ * unscheduling are constant time, and every tick only the entities of one
+ * slot are looked at. Lifetimes longer than a round of the wheel stay in
+ * their slot until their deadline comes around. The removals happen in the
+ * engine update, in the order of the systems.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class LifetimeSystem extends EntitySystem implements EntityListener {
+
+	/**
+	 * The duration of a tick in seconds.
+	 */
+	public static final float TICK = 1f / 60f;
+
+	/**
+	 * The number of slots, a power of two.
+	 */
+	private static final int SLOTS = 256;
+
+	private ComponentMapper<Lifetime> lm = ComponentMapper.getFor(Lifetime.class);
+	private Family family = Family.all(Lifetime.class).get();
+	private Engine engine;
+	private Array<Array<Entity>> wheel = new Array<Array<Entity>>(SLOTS);
+	private long tick;
+	private float accumulator;
+	private int scheduled;
+
+	/**
+	 * The constructor of this entitysystem.
+	 */
+	public LifetimeSystem() {
+		for (int i = 0; i < SLOTS; i++) {
+			wheel.add(new Array<Entity>(false, 16));
+		}
+	}
+
+	/**
+	 * Schedules the entities with a lifetime when added to engine.
+	 */
+	public void addedToEngine(Engine engine) {
+		this.engine = engine;
+		engine.addEntityListener(family, this);
+		for (Entity e : engine.getEntitiesFor(family)) {
+			entityAdded(e);
+		}
+	}
+
+	/**
+	 * Clears the wheel when removed from engine.
+	 */
+	public void removedFromEngine(Engine engine) {
+		engine.removeEntityListener(this);
+		for (Entity e : engine.getEntitiesFor(family)) {
+			entityRemoved(e);
+		}
+		this.engine = null;
+	}
+
+	/**
+	 * Schedules an entity in the slot of its deadline.
+	 */
+	@Override
+	public void entityAdded(Entity entity) {
+		Lifetime l = lm.get(entity);
+		long ticks = Math.max(1, (long) Math.ceil(l.lifetime / TICK));
+		l.deadline = tick + ticks;
+		l.slot = (int) (l.deadline & (SLOTS - 1));
+		Array<Entity> slot = wheel.get(l.slot);
+		l.index = slot.size;
+		slot.add(entity);
+		scheduled++;
+	}
+
+	/**
+	 * Unschedules an entity removed before its deadline.
+	 */
+	@Override
+	public void entityRemoved(Entity entity) {
+		Lifetime l = lm.get(entity);
+		if (l != null && l.slot >= 0) {
+			unschedule(l);
+		}
+	}
+
+	/**
+	 * The update method of the entity system, advances the wheel by the
+	 * passed ticks and removes the expired entities.
+	 */
+	public void update(float deltaTime) {
+		accumulator += deltaTime;
+		while (accumulator >= TICK) {
+			accumulator -= TICK;
+			tick++;
+			Array<Entity> slot = wheel.get((int) (tick & (SLOTS - 1)));
+			for (int i = slot.size - 1; i >= 0; i--) {
+				Lifetime l = lm.get(slot.get(i));
+				if (l.deadline <= tick) {
+					Entity e = slot.get(i);
+					unschedule(l);
+					engine.removeEntity(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method takes an entity out of its slot, the last entity of the
+	 * slot takes its place.
+	 * 
+	 * @param l
+	 *            The lifetime component of the entity.
+	 */
+	private void unschedule(Lifetime l) {
+		Array<Entity> slot = wheel.get(l.slot);
+		Entity last = slot.pop();
+		if (l.index < slot.size) {
+			slot.set(l.index, last);
+			lm.get(last).index = l.index;
+		}
+		l.slot = -1;
+		scheduled--;
+	}
+
+	/**
+	 * Getter for the number of entities waiting for their removal.
+	 * 
+	 * @return int the scheduled entity count
+	 */
+	public int getScheduledCount() {
+		return scheduled;
+	}
+
+}
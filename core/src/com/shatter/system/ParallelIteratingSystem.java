@@ -0,0 +1,237 @@
+package com.shatter.system;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+
+/**
+ * This class is the parallel counterpart of Ashley's IteratingSystem. The
+ * entities of the family are split into chunks, all chunks but the first are
+ * processed on the worker pool and the first one on the calling thread, and
+ * the update waits for all of them. Small families are processed on the
+ * calling thread only.
+ * 
+ * processEntity() runs on several threads at once, so it may only change the
+ * components of its own entity. Adding and removing entities is recorded with
+ * addEntity() and removeEntity() and applied after all chunks are done, in
+ * the order they were recorded.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public abstract class ParallelIteratingSystem extends EntitySystem {
+
+	private Family family;
+	private ExecutorService executor;
+	private int parallelism;
+	private int minChunk;
+	private Engine engine;
+	private ImmutableArray<Entity> entities;
+	private Chunk[] chunks;
+	private Future<?>[] futures;
+	private ConcurrentLinkedQueue<Entity> commands = new ConcurrentLinkedQueue<Entity>();
+	private ConcurrentLinkedQueue<Boolean> removals = new ConcurrentLinkedQueue<Boolean>();
+
+	/**
+	 * The constructor of this entitysystem.
+	 * 
+	 * @param family
+	 *            The family of the processed entities.
+	 * @param executor
+	 *            The worker pool, null to process on the calling thread.
+	 * @param parallelism
+	 *            The most chunks per update, e.g. the workers + 1.
+	 * @param minChunk
+	 *            The fewest entities per chunk.
+	 */
+	public ParallelIteratingSystem(Family family, ExecutorService executor, int parallelism, int minChunk) {
+		this.family = family;
+		this.executor = executor;
+		this.parallelism = Math.max(1, parallelism);
+		this.minChunk = Math.max(1, minChunk);
+		this.chunks = new Chunk[this.parallelism];
+		this.futures = new Future<?>[this.parallelism];
+		for (int i = 0; i < this.parallelism; i++) {
+			chunks[i] = new Chunk();
+		}
+	}
+
+	/**
+	 * This method creates a worker pool of daemon threads for parallel
+	 * systems.
+	 * 
+	 * @param threads
+	 *            The number of threads.
+	 * @return ExecutorService the worker pool
+	 */
+	public static ExecutorService createPool(int threads) {
+		return Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "system-worker");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Gets the entities when added to engine.
+	 */
+	@Override
+	public void addedToEngine(Engine engine) {
+		this.engine = engine;
+		this.entities = engine.getEntitiesFor(family);
+	}
+
+	/**
+	 * Sets the entities to null when removed from engine.
+	 */
+	@Override
+	public void removedFromEngine(Engine engine) {
+		this.entities = null;
+	}
+
+	/**
+	 * The update method of the entity system, processes all entities in
+	 * chunks and applies the recorded changes.
+	 */
+	@Override
+	public void update(float deltaTime) {
+		int size = entities.size();
+		int count = executor == null ? 1 : Math.max(1, Math.min(parallelism, size / minChunk));
+		int per = (size + count - 1) / Math.max(1, count);
+
+		for (int i = 0; i < count; i++) {
+			chunks[i].set(i * per, Math.min(size, (i + 1) * per), deltaTime);
+		}
+		for (int i = 1; i < count; i++) {
+			futures[i] = executor.submit(chunks[i]);
+		}
+		RuntimeException failure = null;
+		try {
+			chunks[0].run();
+		} finally {
+			// join, also if the own chunk failed, so no worker is still
+			// running when its exception is thrown
+			for (int i = 1; i < count; i++) {
+				try {
+					futures[i].get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					failure = new RuntimeException(e);
+				} catch (ExecutionException e) {
+					failure = new RuntimeException(e.getCause());
+				}
+				futures[i] = null;
+			}
+		}
+
+		// the recorded changes, in order
+		Entity entity;
+		while ((entity = commands.poll()) != null) {
+			if (removals.poll()) {
+				engine.removeEntity(entity);
+			} else {
+				engine.addEntity(entity);
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * This method processes one entity, it may run on any worker thread.
+	 * 
+	 * @param entity
+	 *            The entity.
+	 * @param deltaTime
+	 *            The time passed since the last update.
+	 */
+	protected abstract void processEntity(Entity entity, float deltaTime);
+
+	/**
+	 * This method records adding an entity after the current update.
+	 * 
+	 * @param entity
+	 *            The entity.
+	 */
+	protected void addEntity(Entity entity) {
+		record(entity, Boolean.FALSE);
+	}
+
+	/**
+	 * This method records removing an entity after the current update.
+	 * 
+	 * @param entity
+	 *            The entity.
+	 */
+	protected void removeEntity(Entity entity) {
+		record(entity, Boolean.TRUE);
+	}
+
+	/**
+	 * This method records a change, entity and kind are added together so
+	 * they stay in the same order.
+	 * 
+	 * @param entity
+	 *            The entity.
+	 * @param removal
+	 *            True to remove the entity, false to add it.
+	 */
+	private synchronized void record(Entity entity, Boolean removal) {
+		removals.add(removal);
+		commands.add(entity);
+	}
+
+	/**
+	 * Getter for the processed entities.
+	 * 
+	 * @return ImmutableArray<Entity> the entities
+	 */
+	public ImmutableArray<Entity> getEntities() {
+		return entities;
+	}
+
+	/**
+	 * This class represents a range of the entities processed by one thread.
+	 */
+	private class Chunk implements Runnable {
+		private int from, to;
+		private float deltaTime;
+
+		/**
+		 * This method sets the range of the chunk.
+		 * 
+		 * @param from
+		 *            The first index.
+		 * @param to
+		 *            The index after the last one.
+		 * @param deltaTime
+		 *            The time passed since the last update.
+		 */
+		void set(int from, int to, float deltaTime) {
+			this.from = from;
+			this.to = to;
+			this.deltaTime = deltaTime;
+		}
+
+		@Override
+		public void run() {
+			for (int i = from; i < to; i++) {
+				processEntity(entities.get(i), deltaTime);
+			}
+		}
+	}
+
+}
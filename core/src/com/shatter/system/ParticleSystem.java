@@ -0,0 +1,165 @@
+package com.shatter.system;
+
+import java.util.Arrays;
+
+import com.shatter.LineGeometry;
+import com.shatter.RenderState;
+
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * This class simulates and draws the particles outside of the entity system.
+ * A particle lives in parallel primitive arrays, one entry per particle for
+ * position, velocity, angle, angular velocity, lifetime and colour, so
+ * emitting one is a few array writes and the update is one tight loop over
+ * the live particles. Expired particles are swap-removed: the last particle
+ * moves into their place, so the live ones stay packed at the front.
+ * 
+ * All particles are drawn as triangle outlines, capture() adds them to the
+ * line geometry of a render state. The update only simulates, so it can run
+ * any number of times per frame.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class ParticleSystem extends EntitySystem {
+
+	/**
+	 * The shape of a particle, a triangle.
+	 */
+	private static final float[] SHAPE = { 0.0F, 0.15F, -0.15F, -0.15F, 0.15F, -0.15F };
+
+	private float[] x, y, vx, vy, angle, angVel, life, color;
+	private int count;
+	private Color scratch = new Color();
+
+	/**
+	 * The constructor of this entitysystem.
+	 * 
+	 * @param capacity
+	 *            The initial number of particles, the arrays grow on demand.
+	 */
+	public ParticleSystem(int capacity) {
+		resize(Math.max(16, capacity));
+	}
+
+	/**
+	 * This method emits a particle with a random spin and colour.
+	 * 
+	 * @param px
+	 *            The x value of the position.
+	 * @param py
+	 *            The y value of the position.
+	 * @param direction
+	 *            The direction of flight and the angle in degrees.
+	 * @param speed
+	 *            The speed.
+	 * @param lifetime
+	 *            The lifetime in seconds.
+	 */
+	public void emit(float px, float py, float direction, float speed, float lifetime) {
+		if (count == x.length) {
+			resize(count * 2);
+		}
+		int i = count++;
+		x[i] = px;
+		y[i] = py;
+		// (0, speed) rotated by the direction
+		vx[i] = -MathUtils.sinDeg(direction) * speed;
+		vy[i] = MathUtils.cosDeg(direction) * speed;
+		angle[i] = direction;
+		angVel[i] = MathUtils.random(360f);
+		life[i] = lifetime;
+		color[i] = scratch.set(MathUtils.random(), MathUtils.random(), MathUtils.random(), 1f).toFloatBits();
+	}
+
+	/**
+	 * The update method of the entity system, moves the particles and removes
+	 * the expired ones.
+	 */
+	public void update(float deltaTime) {
+		for (int i = 0; i < count;) {
+			life[i] -= deltaTime;
+			if (life[i] <= 0) {
+				remove(i); // the last one moved here, i is looked at again
+				continue;
+			}
+			x[i] += vx[i] * deltaTime;
+			y[i] += vy[i] * deltaTime;
+			angle[i] += angVel[i] * deltaTime;
+			i++;
+		}
+	}
+
+	/**
+	 * This method adds the outlines of all particles to the line geometry of a
+	 * render state, it doesn't need GL.
+	 * 
+	 * @param state
+	 *            The render state.
+	 */
+	public void capture(RenderState state) {
+		LineGeometry lines = state.lines;
+		for (int i = 0; i < count; i++) {
+			lines.polygon(SHAPE, 0, SHAPE.length, x[i], y[i], angle[i], color[i]);
+		}
+	}
+
+	/**
+	 * This method removes a particle, the last particle takes its place.
+	 * 
+	 * @param i
+	 *            The index of the particle.
+	 */
+	private void remove(int i) {
+		int last = --count;
+		x[i] = x[last];
+		y[i] = y[last];
+		vx[i] = vx[last];
+		vy[i] = vy[last];
+		angle[i] = angle[last];
+		angVel[i] = angVel[last];
+		life[i] = life[last];
+		color[i] = color[last];
+	}
+
+	/**
+	 * This method changes the capacity of the arrays.
+	 * 
+	 * @param capacity
+	 *            The new capacity.
+	 */
+	private void resize(int capacity) {
+		if (x == null) {
+			x = new float[capacity];
+			y = new float[capacity];
+			vx = new float[capacity];
+			vy = new float[capacity];
+			angle = new float[capacity];
+			angVel = new float[capacity];
+			life = new float[capacity];
+			color = new float[capacity];
+			return;
+		}
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		vx = Arrays.copyOf(vx, capacity);
+		vy = Arrays.copyOf(vy, capacity);
+		angle = Arrays.copyOf(angle, capacity);
+		angVel = Arrays.copyOf(angVel, capacity);
+		life = Arrays.copyOf(life, capacity);
+		color = Arrays.copyOf(color, capacity);
+	}
+
+	/**
+	 * Getter for the number of live particles.
+	 * 
+	 * @return int the particle count
+	 */
+	public int getCount() {
+		return count;
+	}
+
+}
@@ -1,29 +1,134 @@
 package com.shatter.system;
 
+import java.util.Arrays;
+
 import com.shatter.component.Movement;
 import com.shatter.component.Position;
 import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
 import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.ashley.core.EntitySystem;
 import com.badlogic.ashley.core.Family;
-import com.badlogic.ashley.systems.IteratingSystem;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.ObjectIntMap;
 
-public class PhysicsSystem extends IteratingSystem {
+/**
+ * This class moves all entities with a position and a movement. It keeps its
+ * own index of the moving bodies, maintained by an entity listener, with the
+ * components of every body packed in parallel arrays, so the update is one
+ * loop over all bodies without component lookups and without allocating. The
+ * components stay the state the other systems see and change. The
+ * acceleration is only read, the damping is applied to the velocity.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class PhysicsSystem extends EntitySystem implements EntityListener {
 	private ComponentMapper<Movement> mm = ComponentMapper.getFor(Movement.class);
 	private ComponentMapper<Position> pm = ComponentMapper.getFor(Position.class);
+	private Family family = Family.all(Movement.class, Position.class).get();
+	private ObjectIntMap<Entity> indices = new ObjectIntMap<Entity>();
+	private Entity[] entities = new Entity[64];
+	private Position[] positions = new Position[64];
+	private Movement[] movements = new Movement[64];
+	private int count;
+
+	/**
+	 * Indexes the moving bodies when added to engine.
+	 */
+	public void addedToEngine(Engine engine) {
+		engine.addEntityListener(family, this);
+		for (Entity e : engine.getEntitiesFor(family)) {
+			entityAdded(e);
+		}
+	}
 
-	public PhysicsSystem() {
-		super(Family.all(Movement.class, Position.class).get());
+	/**
+	 * Clears the index when removed from engine.
+	 */
+	public void removedFromEngine(Engine engine) {
+		engine.removeEntityListener(this);
+		Arrays.fill(entities, 0, count, null);
+		Arrays.fill(positions, 0, count, null);
+		Arrays.fill(movements, 0, count, null);
+		indices.clear();
+		count = 0;
 	}
 
+	/**
+	 * Adds a body to the index.
+	 */
 	@Override
-	protected void processEntity(Entity entity, float deltaTime) {
-		Movement m = mm.get(entity);
-		Position p = pm.get(entity);
-
-		Vector2 damp = m.vel.cpy().scl(m.damp);
-		p.pos.mulAdd(m.vel, deltaTime);
-		m.vel.mulAdd((m.acc).sub(damp), deltaTime);
-		p.angle += m.angVel * deltaTime;
+	public void entityAdded(Entity entity) {
+		if (count == entities.length) {
+			resize(count * 2);
+		}
+		entities[count] = entity;
+		positions[count] = pm.get(entity);
+		movements[count] = mm.get(entity);
+		indices.put(entity, count);
+		count++;
+	}
+
+	/**
+	 * Removes a body from the index, the last body takes its place.
+	 */
+	@Override
+	public void entityRemoved(Entity entity) {
+		int i = indices.remove(entity, -1);
+		if (i < 0) {
+			return;
+		}
+		int last = --count;
+		if (i < last) {
+			entities[i] = entities[last];
+			positions[i] = positions[last];
+			movements[i] = movements[last];
+			indices.put(entities[i], i);
+		}
+		entities[last] = null;
+		positions[last] = null;
+		movements[last] = null;
+	}
+
+	/**
+	 * The update method of the entity system.
+	 */
+	public void update(float deltaTime) {
+		for (int i = 0; i < count; i++) {
+			Position p = positions[i];
+			Movement m = movements[i];
+			Vector2 pos = p.pos, vel = m.vel, acc = m.acc;
+			float vx = vel.x, vy = vel.y;
+
+			// the position moves with the velocity of the frame start
+			pos.x += vx * deltaTime;
+			pos.y += vy * deltaTime;
+			p.angle += m.angVel * deltaTime;
+			vel.x = vx + (acc.x - vx * m.damp) * deltaTime;
+			vel.y = vy + (acc.y - vy * m.damp) * deltaTime;
+		}
+	}
+
+	/**
+	 * This method changes the capacity of the arrays.
+	 * 
+	 * @param capacity
+	 *            The new capacity.
+	 */
+	private void resize(int capacity) {
+		entities = Arrays.copyOf(entities, capacity);
+		positions = Arrays.copyOf(positions, capacity);
+		movements = Arrays.copyOf(movements, capacity);
+	}
+
+	/**
+	 * Getter for the number of moving bodies.
+	 * 
+	 * @return int the body count
+	 */
+	public int getBodyCount() {
+		return count;
 	}
 }
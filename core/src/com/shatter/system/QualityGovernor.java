@@ -0,0 +1,242 @@
+package com.shatter.system;
+
+import com.badlogic.ashley.core.EntitySystem;
+
+/**
+ * This class keeps the frame time on target by trading fracture detail for
+ * speed. It measures the work of a frame and the time of every finished
+ * fracture job, smoothed with an exponential moving average, and moves
+ * between quality levels that set the fracture point count, the particles per
+ * destroyed entity and the debris cap. The work of a frame is the CPU time of
+ * its simulation and drawing, not the frame time, as vsync holds the frame
+ * time at the refresh interval however much room is left.
+ * 
+ * A level is only dropped after the frames were too slow for a while and only
+ * raised after they were fast enough for much longer, and the band between
+ * the two thresholds keeps the level as it is, so the numbers don't
+ * oscillate around the target.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class QualityGovernor extends EntitySystem {
+
+	/**
+	 * The fracture point count per level.
+	 */
+	private static final int[] POINTS = { 3, 5, 7, 10, 15, 25, 40 };
+
+	/**
+	 * The particles per destroyed entity per level.
+	 */
+	private static final int[] PARTICLES = { 15, 30, 60, 100, 150, 200, 300 };
+
+	/**
+	 * The debris cap per level.
+	 */
+	private static final int[] DEBRIS = { 25, 50, 100, 150, 250, 400, 600 };
+
+	/**
+	 * The weight of a new sample in the moving averages.
+	 */
+	private static final float SMOOTHING = 0.1f;
+
+	/**
+	 * The share of the target above which a frame is too slow.
+	 */
+	private static final float SLOW = 1.15f;
+
+	/**
+	 * The share of the target below which a frame leaves room for more.
+	 */
+	private static final float FAST = 0.8f;
+
+	/**
+	 * The seconds the frames must be too slow before the level drops.
+	 */
+	private static final float DROP_DELAY = 0.5f;
+
+	/**
+	 * The seconds the frames must be fast before the level rises.
+	 */
+	private static final float RAISE_DELAY = 3f;
+
+	private CollisionSystem collisionSystem;
+	private FractureSystem fractureSystem;
+	private float targetMillis;
+	private float frameMillis;
+	private float shatterMillis;
+	private int finishedCount;
+	private int level = 3;
+	private float slowTime;
+	private float fastTime;
+	private boolean enabled = true;
+
+	/**
+	 * The constructor of this entitysystem.
+	 * 
+	 * @param collisionSystem
+	 *            The system shattering the asteroids.
+	 * @param fractureSystem
+	 *            The system running the fracture jobs.
+	 * @param targetMillis
+	 *            The target frame time in milliseconds.
+	 */
+	public QualityGovernor(CollisionSystem collisionSystem, FractureSystem fractureSystem, float targetMillis) {
+		this.collisionSystem = collisionSystem;
+		this.fractureSystem = fractureSystem;
+		this.targetMillis = targetMillis;
+		this.frameMillis = targetMillis;
+	}
+
+	/**
+	 * The update method of the entity system, takes the whole frame time as
+	 * work of the last frame.
+	 */
+	public void update(float deltaTime) {
+		update(deltaTime, deltaTime * 1000f);
+	}
+
+	/**
+	 * This method measures the last frame and changes the level if needed.
+	 * 
+	 * @param deltaTime
+	 *            The time passed since the last frame in seconds.
+	 * @param workMillis
+	 *            The CPU time of the last frame in milliseconds.
+	 */
+	public void update(float deltaTime, float workMillis) {
+		frameMillis += SMOOTHING * (workMillis - frameMillis);
+		if (fractureSystem.getFinishedCount() != finishedCount) {
+			finishedCount = fractureSystem.getFinishedCount();
+			shatterMillis += SMOOTHING * (fractureSystem.getLastJobMillis() - shatterMillis);
+		}
+		if (!enabled) {
+			return;
+		}
+
+		// a shatter may take two frames until its fragments are late
+		boolean slow = frameMillis > targetMillis * SLOW || shatterMillis > 2 * targetMillis;
+		boolean fast = frameMillis < targetMillis * FAST && shatterMillis < targetMillis;
+		slowTime = slow ? slowTime + deltaTime : 0;
+		fastTime = fast ? fastTime + deltaTime : 0;
+
+		if (slowTime >= DROP_DELAY && level > 0) {
+			level--;
+			slowTime = 0;
+			apply();
+		} else if (fastTime >= RAISE_DELAY && level < POINTS.length - 1) {
+			level++;
+			fastTime = 0;
+			apply();
+		}
+	}
+
+	/**
+	 * This method hands the numbers of the current level to the systems.
+	 */
+	private void apply() {
+		collisionSystem.setPointCount(POINTS[level]);
+		collisionSystem.setParticleCount(PARTICLES[level]);
+		fractureSystem.setMaxDebris(DEBRIS[level]);
+	}
+
+	/**
+	 * Gets the enabled flag.
+	 * 
+	 * @return boolean true if the governor sets the numbers
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets the enabled flag, the numbers of the current level are applied
+	 * when it is enabled.
+	 * 
+	 * @param enabled
+	 *            True if the governor sets the numbers.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (enabled) {
+			apply();
+		} else {
+			fractureSystem.setMaxDebris(Integer.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * Getter for the current level.
+	 * 
+	 * @return int the level, 0 is the lowest quality
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Getter for the highest level.
+	 * 
+	 * @return int the level
+	 */
+	public int getMaxLevel() {
+		return POINTS.length - 1;
+	}
+
+	/**
+	 * Getter for the fracture point counts of all levels, e.g. for the
+	 * densities of the fracture patterns.
+	 * 
+	 * @return int[] the point counts, lowest level first
+	 */
+	public static int[] getPointCounts() {
+		return POINTS.clone();
+	}
+
+	/**
+	 * Getter for the fracture point count of the current level.
+	 * 
+	 * @return int the point count
+	 */
+	public int getPointCount() {
+		return POINTS[level];
+	}
+
+	/**
+	 * Getter for the particles per destroyed entity of the current level.
+	 * 
+	 * @return int the particle count
+	 */
+	public int getParticleCount() {
+		return PARTICLES[level];
+	}
+
+	/**
+	 * Getter for the debris cap of the current level.
+	 * 
+	 * @return int the debris cap
+	 */
+	public int getDebrisCap() {
+		return DEBRIS[level];
+	}
+
+	/**
+	 * Getter for the smoothed CPU time of a frame.
+	 * 
+	 * @return float the time in milliseconds
+	 */
+	public float getFrameMillis() {
+		return frameMillis;
+	}
+
+	/**
+	 * Getter for the smoothed fracture job time.
+	 * 
+	 * @return float the time in milliseconds
+	 */
+	public float getShatterMillis() {
+		return shatterMillis;
+	}
+
+}
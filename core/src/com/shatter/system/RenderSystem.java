@@ -1,77 +1,172 @@
 package com.shatter.system;
 
+import com.shatter.LineBatch;
+import com.shatter.LineGeometry;
+import com.shatter.RenderState;
 import com.shatter.component.Fracture;
 import com.shatter.component.Position;
 import com.shatter.component.Visual;
+import com.shatter.dt.FlatTriangulation;
+import com.shatter.dt.TriangulationSnapshot;
 
 import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
 import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntitySystem;
 import com.badlogic.ashley.core.Family;
-import com.badlogic.ashley.systems.IteratingSystem;
+import com.badlogic.ashley.utils.ImmutableArray;
 import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 
-public class RenderSystem extends IteratingSystem {
+/**
+ * This class draws the entities in two halves. capture() moves the outlines
+ * and overlays into world space as line geometry of a render state, right
+ * after the simulation on its thread, and draw() sends that to the GPU in a
+ * few draw calls on the GL thread. It isn't updated by the engine.
+ * 
+ * The debug overlay shows the DT and the VD of every asteroid in view. It is
+ * off by default and cached per asteroid until its triangulation changes.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class RenderSystem extends EntitySystem {
 	private ComponentMapper<Position> pm = ComponentMapper.getFor(Position.class);
 	private ComponentMapper<Visual> sm = ComponentMapper.getFor(Visual.class);
 	private ComponentMapper<Fracture> fm = ComponentMapper.getFor(Fracture.class);
-	private ShapeRenderer shapeRenderer;
+	private ImmutableArray<Entity> entities;
+	private static final float DT_COLOR = Color.GREEN.toFloatBits();
+	private static final float VD_COLOR = Color.BLACK.toFloatBits();
+	private LineBatch batch;
 	private Camera camera;
+	private boolean debugOverlay = false;
 
 	public RenderSystem(OrthographicCamera camera) {
-		super(Family.all(Position.class, Visual.class).get());
 		this.camera = camera;
-		this.shapeRenderer = new ShapeRenderer();
+		this.batch = new LineBatch(1 << 15);
+		setProcessing(false);
 	}
 
-	protected void processEntity(Entity entity, float deltaTime) {
-		Position pose = (Position) this.pm.get(entity);
-		Visual shape = (Visual) this.sm.get(entity);
-		Fracture fract = this.fm.get(entity);
+	public void addedToEngine(Engine engine) {
+		entities = engine.getEntitiesFor(Family.all(Position.class, Visual.class).get());
+	}
 
-		if (pose.pos.x > camera.viewportWidth / 2) {
-			pose.pos.x = -camera.viewportWidth / 2;
-		}
-		if (pose.pos.y > camera.viewportHeight / 2) {
-			pose.pos.y = -camera.viewportHeight / 2;
+	public void removedFromEngine(Engine engine) {
+		entities = null;
+	}
+
+	/**
+	 * This method builds the line geometry of the drawn entities in a render
+	 * state, it doesn't need GL.
+	 * 
+	 * @param state
+	 *            The render state, it is cleared first.
+	 * @param alpha
+	 *            The blend factor between the previous and the current step.
+	 */
+	public void capture(RenderState state, float alpha) {
+		state.clear();
+		LineGeometry lines = state.lines;
+		for (int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			Position pose = this.pm.get(entity);
+			Visual shape = this.sm.get(entity);
+			Fracture fract = this.fm.get(entity);
+
+			// between the previous and the current step
+			float x = pose.prevPos.x + (pose.pos.x - pose.prevPos.x) * alpha;
+			float y = pose.prevPos.y + (pose.pos.y - pose.prevPos.y) * alpha;
+			float angle = pose.prevAngle + (pose.angle - pose.prevAngle) * alpha;
+
+			// render entities
+			lines.polygon(shape.VERTICES, 0, shape.VERTICES.length, x, y, angle, shape.COLOR.toFloatBits());
+
+			if (debugOverlay && fract != null && inView(fract.outline, x, y)) {
+				lines.lines(getOverlay(fract), x, y, angle);
+			}
 		}
-		if (pose.pos.x < -camera.viewportWidth / 2) {
-			pose.pos.x = camera.viewportWidth / 2;
+	}
+
+	/**
+	 * This method returns the debug overlay of a fracture component, the DT
+	 * and the VD as line geometry in the local frame. It is only rebuilt when
+	 * the version of the triangulation changed.
+	 * 
+	 * @param fract
+	 *            The fracture component.
+	 * @return LineGeometry the overlay
+	 */
+	private LineGeometry getOverlay(Fracture fract) {
+		// read one consistent state, the triangulation may be updated at the
+		// same time
+		TriangulationSnapshot snapshot = fract.getTriangulator().getSnapshot();
+		if (fract.overlay != null && fract.overlayVersion == snapshot.getVersion()) {
+			return fract.overlay;
 		}
-		if (pose.pos.y < -camera.viewportHeight / 2) {
-			pose.pos.y = camera.viewportHeight / 2;
+		FlatTriangulation flat = snapshot.getFlat();
+		if (fract.overlay == null) {
+			fract.overlay = new LineGeometry(flat.getTriangleVertices().length + flat.getCellVertices().length);
 		}
+		LineGeometry overlay = fract.overlay;
+		overlay.clear();
 
-		// render entities
-		if (shape != null && pose != null) {
-			this.shapeRenderer.setColor(shape.COLOR);
-			this.shapeRenderer.identity();
-			this.shapeRenderer.translate(pose.pos.x, pose.pos.y, 0.0F);
-			this.shapeRenderer.rotate(0.0F, 0.0F, 1.0F, pose.angle);
-			this.shapeRenderer.polygon(shape.VERTICES);
+		// render DT
+		float[] triangles = flat.getTriangleVertices();
+		for (int j = 0; j < triangles.length; j += 6) {
+			overlay.polygon(triangles, j, 6, 0, 0, 0, DT_COLOR);
 		}
-
-		if (fract != null) {
-			// render DT
-			this.shapeRenderer.setColor(Color.GREEN);
-			for (int i = 0; i < fract.triangulator.getDTriangles().size(); i++) {
-				this.shapeRenderer.polygon(fract.triangulator.getDTriangles().get(i).toVertexArray());
-			}
-			// render VD
-			this.shapeRenderer.setColor(Color.BLACK);
-			for (int i = 0; i < fract.triangulator.getVDiagram().size(); i++) {
-				this.shapeRenderer.polygon(fract.triangulator.getVDiagram().get(i));
+		// render VD
+		for (int j = 0; j < flat.getCellCount(); j++) {
+			if (flat.getCellLength(j) >= 6) { // degenerated cells can't be drawn
+				overlay.polygon(flat.getCellVertices(), flat.getCellOffset(j), flat.getCellLength(j), 0, 0, 0,
+						VD_COLOR);
 			}
 		}
+		fract.overlayVersion = snapshot.getVersion();
+		return overlay;
+	}
+
+	/**
+	 * This method checks if an outline can be seen by the camera, with the
+	 * radius around its origin so every rotation is covered.
+	 * 
+	 * @param outline
+	 *            The outline in its local frame.
+	 * @param x
+	 *            The x value of the position.
+	 * @param y
+	 *            The y value of the position.
+	 * @return boolean true if it is in the frustum
+	 */
+	private boolean inView(float[] outline, float x, float y) {
+		float radius2 = 0;
+		for (int i = 0; i < outline.length; i += 2) {
+			radius2 = Math.max(radius2, outline[i] * outline[i] + outline[i + 1] * outline[i + 1]);
+		}
+		float radius = (float) Math.sqrt(radius2);
+		return camera.frustum.boundsInFrustum(x, y, 0, radius, radius, 0);
+	}
+
+	/**
+	 * This method draws a render state.
+	 * 
+	 * @param state
+	 *            The render state.
+	 */
+	public void draw(RenderState state) {
+		batch.draw(camera.combined, state.lines);
+	}
+
+	public void dispose() {
+		batch.dispose();
+	}
 
+	public boolean isDebugOverlay() {
+		return debugOverlay;
 	}
 
-	public void update(float deltaTime) {
-		this.shapeRenderer.setProjectionMatrix(this.camera.combined);
-		this.shapeRenderer.begin(ShapeRenderer.ShapeType.Line);
-		super.update(deltaTime);
-		this.shapeRenderer.end();
+	public void setDebugOverlay(boolean debugOverlay) {
+		this.debugOverlay = debugOverlay;
 	}
 }
@@ -1,6 +1,5 @@
 package com.shatter.system;
 
-import com.shatter.World;
 import com.shatter.component.Movement;
 import com.shatter.component.Position;
 import com.shatter.component.Ship;
@@ -10,18 +9,17 @@ import com.badlogic.ashley.core.Family;
 import com.badlogic.ashley.systems.IteratingSystem;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
-import com.badlogic.gdx.math.Vector2;
 
 public class ShipSystem extends IteratingSystem {
 
 	private ComponentMapper<Movement> mm = ComponentMapper.getFor(Movement.class);
 	private ComponentMapper<Position> pm = ComponentMapper.getFor(Position.class);
 	private ComponentMapper<Ship> sm = ComponentMapper.getFor(Ship.class);
-	private World world;
+	private ParticleSystem particleSystem;
 
-	public ShipSystem(World world) {
+	public ShipSystem(ParticleSystem particleSystem) {
 		super(Family.all(Movement.class, Ship.class, Position.class).get());
-		this.world = world;
+		this.particleSystem = particleSystem;
 	}
 
 	@Override
@@ -36,14 +34,14 @@ public class ShipSystem extends IteratingSystem {
 			p.angle -= s.ROT_SPEED;
 		}
 		if (Gdx.input.isKeyPressed(Keys.UP)) {
-			m.acc = new Vector2(0, 1).rotate(p.angle).scl(s.SPEED);
+			m.acc.set(0, 1).rotate(p.angle).scl(s.SPEED);
 		} else {
 			m.acc.x = 0;
 			m.acc.y = 0;
 		}
 		
 		if (m.acc.y != 0){
-			world.createParticle(p.pos.x + (float)(Math.sin(Math.toRadians(p.angle))), p.pos.y - (float)(Math.cos(Math.toRadians(p.angle))), p.angle-180, (float) (Math.random()*30));
+			particleSystem.emit(p.pos.x + (float)(Math.sin(Math.toRadians(p.angle))), p.pos.y - (float)(Math.cos(Math.toRadians(p.angle))), p.angle-180, (float) (Math.random()*30), (float) (Math.random()*30) / 80);
 		}
 	}
 
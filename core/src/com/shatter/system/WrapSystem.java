@@ -0,0 +1,60 @@
+package com.shatter.system;
+
+import java.util.concurrent.ExecutorService;
+
+import com.shatter.component.Position;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.gdx.graphics.Camera;
+
+/**
+ * This class represents the entity system that wraps entities leaving the
+ * view around to the opposite side. Every entity only changes its own
+ * position, so the entities are processed in parallel.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class WrapSystem extends ParallelIteratingSystem {
+	private ComponentMapper<Position> pm = ComponentMapper.getFor(Position.class);
+	private Camera camera;
+
+	/**
+	 * The constructor of this entitysystem.
+	 * 
+	 * @param camera
+	 *            The camera whose viewport is wrapped around.
+	 * @param executor
+	 *            The worker pool, null to process on the calling thread.
+	 * @param parallelism
+	 *            The most chunks per update.
+	 */
+	public WrapSystem(Camera camera, ExecutorService executor, int parallelism) {
+		super(Family.all(Position.class).get(), executor, parallelism, 512);
+		this.camera = camera;
+	}
+
+	protected void processEntity(Entity entity, float deltaTime) {
+		Position pose = this.pm.get(entity);
+		float halfWidth = camera.viewportWidth / 2;
+		float halfHeight = camera.viewportHeight / 2;
+		float x = pose.pos.x, y = pose.pos.y;
+
+		if (pose.pos.x > halfWidth) {
+			pose.pos.x = -halfWidth;
+		}
+		if (pose.pos.y > halfHeight) {
+			pose.pos.y = -halfHeight;
+		}
+		if (pose.pos.x < -halfWidth) {
+			pose.pos.x = halfWidth;
+		}
+		if (pose.pos.y < -halfHeight) {
+			pose.pos.y = halfHeight;
+		}
+		// the previous position jumps along, so it isn't drawn across the view
+		pose.prevPos.add(pose.pos.x - x, pose.pos.y - y);
+	}
+}
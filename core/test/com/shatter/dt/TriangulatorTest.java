@@ -0,0 +1,203 @@
+package com.shatter.dt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * This class tests the constrained triangulation.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class TriangulatorTest {
+
+	/**
+	 * The allowed area error.
+	 */
+	private static final float EPSILON = 1.0e-3f;
+
+	/**
+	 * A seed on an outline edge splits the edge, the triangles still cover
+	 * the outline exactly.
+	 */
+	@Test
+	public void seedOnOutlineEdge() {
+		Triangulator t = new Triangulator(points(0, 0, 4, 0, 4, 4, 0, 4), true);
+		Vector2 seed = new Vector2(2, 0);
+		ArrayList<Vector2> seeds = points(1, 1, 3, 2, 2, 3);
+		seeds.add(seed);
+		t.dynamicUpdatePoints(seeds);
+
+		TriangulationSnapshot snapshot = t.getSnapshot();
+		assertTrue(snapshot.getPoints().contains(seed));
+		assertEquals(16f, area(snapshot.getTriangles()), EPSILON);
+		assertTrue(hasEdge(snapshot.getTriangles(), seed, new Vector2(0, 0)));
+		assertTrue(hasEdge(snapshot.getTriangles(), seed, new Vector2(4, 0)));
+		assertEquals(snapshot.getPoints().size(), snapshot.getCells().size());
+
+		// the seed splits the outline, it can't be removed
+		assertTrue(!t.removePoint(seed));
+	}
+
+	/**
+	 * An outline vertex lying on another outline edge splits that edge
+	 * instead of breaking the segment recovery.
+	 */
+	@Test
+	public void vertexOnOutlineEdge() {
+		// the notch from the top touches the bottom edge at (4, 0)
+		Triangulator t = new Triangulator(points(0, 0, 8, 0, 8, 8, 5, 8, 4, 0, 3, 8, 0, 8), true);
+
+		TriangulationSnapshot snapshot = t.getSnapshot();
+		assertEquals(64f - 8f, area(snapshot.getTriangles()), EPSILON);
+		assertTrue(hasEdge(snapshot.getTriangles(), new Vector2(0, 0), new Vector2(4, 0)));
+		assertTrue(hasEdge(snapshot.getTriangles(), new Vector2(4, 0), new Vector2(8, 0)));
+	}
+
+	/**
+	 * A published snapshot keeps its contents while the triangulation is
+	 * updated.
+	 */
+	@Test
+	public void snapshotUnchangedByUpdate() {
+		Triangulator t = new Triangulator(points(0, 0, 4, 0, 4, 4, 0, 4), true);
+		t.dynamicUpdatePoints(points(1, 1, 3, 2, 2, 3));
+		TriangulationSnapshot before = t.getSnapshot();
+		ArrayList<Triangle> triangles = new ArrayList<Triangle>(before.getTriangles());
+		ArrayList<Vector2> points = new ArrayList<Vector2>(before.getPoints());
+		ArrayList<float[]> cells = new ArrayList<float[]>(before.getCells());
+
+		t.dynamicUpdatePoints(points(2, 1, 1, 3));
+		t.removePoint(new Vector2(1, 1));
+
+		assertTrue(t.getSnapshot().getVersion() > before.getVersion());
+		assertEquals(triangles, before.getTriangles());
+		assertEquals(points, before.getPoints());
+		assertEquals(cells, before.getCells());
+	}
+
+	/**
+	 * An update only allocates the new triangles, the rebuilt cells around
+	 * the change and copies of the list chunks and blocks it writes, not
+	 * copies of the whole mesh or of its chunk tables. Adding and removing a
+	 * point takes about 4 KB at 250 seeds and 4.5 KB at 2000 seeds, the
+	 * bounds leave a third for other JVMs.
+	 */
+	@Test
+	public void updateAllocatesLittle() {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		long small = allocatedPerUpdate(threads, 250);
+		long large = allocatedPerUpdate(threads, 2000);
+		assertTrue("allocated " + large + " bytes per update", large < 6 * 1024);
+		assertTrue("allocated " + large + " vs " + small + " bytes per update", large < small + small / 3);
+	}
+
+	/**
+	 * This method measures the bytes allocated by adding and removing a point
+	 * in a triangulation.
+	 * 
+	 * @param threads
+	 *            The thread bean.
+	 * @param seeds
+	 *            The number of seeds of the triangulation.
+	 * @return long the bytes per update
+	 */
+	private static long allocatedPerUpdate(com.sun.management.ThreadMXBean threads, int seeds) {
+		Random rand = new Random(3);
+		ArrayList<Vector2> outline = new ArrayList<Vector2>();
+		for (int i = 0; i < 32; i++) {
+			outline.add(new Vector2(8 + rand.nextFloat() * 2, 0).rotate(360f / 32 * i));
+		}
+		Triangulator t = new Triangulator(outline, true);
+		ArrayList<Vector2> points = new ArrayList<Vector2>();
+		for (int i = 0; i < seeds; i++) {
+			points.add(new Vector2(rand.nextFloat() * 12 - 6, rand.nextFloat() * 12 - 6));
+		}
+		t.dynamicUpdatePoints(points);
+
+		Vector2 point = new Vector2(0.123f, 0.456f);
+		int updates = 1000;
+		long thread = Thread.currentThread().getId();
+		long allocated = 0;
+		// the first round grows the buffers and warms up
+		for (int round = 0; round < 2; round++) {
+			long start = threads.getThreadAllocatedBytes(thread);
+			for (int i = 0; i < updates; i++) {
+				t.dynamicUpdatePoint(point);
+				t.removePoint(point);
+			}
+			allocated = threads.getThreadAllocatedBytes(thread) - start;
+		}
+		return allocated / updates;
+	}
+
+	/**
+	 * This method builds a point list.
+	 * 
+	 * @param xy
+	 *            The x and y values.
+	 * @return ArrayList<Vector2> the points
+	 */
+	private static ArrayList<Vector2> points(float... xy) {
+		ArrayList<Vector2> points = new ArrayList<Vector2>();
+		for (int i = 0; i < xy.length; i += 2) {
+			points.add(new Vector2(xy[i], xy[i + 1]));
+		}
+		return points;
+	}
+
+	/**
+	 * This method sums the area of the triangles, every one of them has to
+	 * have an area.
+	 * 
+	 * @param triangles
+	 *            The triangles.
+	 * @return float the area
+	 */
+	private static float area(List<Triangle> triangles) {
+		float sum = 0;
+		for (Triangle T : triangles) {
+			Vector2 a = T.getA(), b = T.getB(), c = T.getC();
+			float area = Math.abs((b.x - a.x) * (c.y - a.y) - (b.y - a.y) * (c.x - a.x)) / 2;
+			assertTrue("degenerated triangle", area > EPSILON);
+			sum += area;
+		}
+		return sum;
+	}
+
+	/**
+	 * This method checks if an edge is part of the triangles.
+	 * 
+	 * @param triangles
+	 *            The triangles.
+	 * @param u
+	 *            The edge start.
+	 * @param v
+	 *            The edge end.
+	 * @return boolean The result of the check.
+	 */
+	private static boolean hasEdge(List<Triangle> triangles, Vector2 u, Vector2 v) {
+		for (Triangle T : triangles) {
+			if (T.containsPoint(u) && T.containsPoint(v)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,147 @@
+package com.shatter.system;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.ashley.core.Component;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.ashley.core.Family;
+
+/**
+ * This class tests the deferred entity changes of the parallel iterating
+ * system.
+ * 
+ * @author Julia Angerer
+ * @version 1.0
+ */
+public class ParallelIteratingSystemTest {
+
+	/**
+	 * The number of entities processed in a pass.
+	 */
+	private static final int ENTITIES = 400;
+
+	/**
+	 * The number of chunks per pass.
+	 */
+	private static final int CHUNKS = 4;
+
+	/**
+	 * The component of the processed entities.
+	 */
+	public static class Marker implements Component {
+		int index;
+	}
+
+	/**
+	 * The system under test, it removes every third entity and adds one for
+	 * every fifth, and logs each change as it is recorded.
+	 */
+	private class RecordingSystem extends ParallelIteratingSystem {
+		final List<String> recorded = new ArrayList<String>();
+		final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+		volatile boolean appliedEarly;
+
+		RecordingSystem(ExecutorService executor) {
+			super(Family.all(Marker.class).get(), executor, CHUNKS, 10);
+		}
+
+		@Override
+		protected void processEntity(Entity entity, float deltaTime) {
+			threads.add(Thread.currentThread());
+			if (!applied.isEmpty() || engine.getEntities().size() != ENTITIES) {
+				appliedEarly = true;
+			}
+			int index = entity.getComponent(Marker.class).index;
+			if (index % 5 == 0) {
+				Entity added = new Entity();
+				Marker marker = new Marker();
+				marker.index = ENTITIES + index;
+				added.add(marker);
+				// the log and the record share the lock, so their orders match
+				synchronized (this) {
+					recorded.add("+" + marker.index);
+					addEntity(added);
+				}
+			}
+			if (index % 3 == 0) {
+				synchronized (this) {
+					recorded.add("-" + index);
+					removeEntity(entity);
+				}
+			}
+		}
+	}
+
+	private ExecutorService executor;
+	private Engine engine;
+	private List<String> applied;
+
+	/**
+	 * Sets up an engine with the entities and a listener logging the applied
+	 * changes.
+	 */
+	@Before
+	public void setUp() {
+		executor = ParallelIteratingSystem.createPool(CHUNKS - 1);
+		engine = new Engine();
+		for (int i = 0; i < ENTITIES; i++) {
+			Entity e = new Entity();
+			Marker marker = new Marker();
+			marker.index = i;
+			e.add(marker);
+			engine.addEntity(e);
+		}
+		applied = Collections.synchronizedList(new ArrayList<String>());
+		engine.addEntityListener(new EntityListener() {
+			@Override
+			public void entityAdded(Entity entity) {
+				applied.add("+" + entity.getComponent(Marker.class).index);
+			}
+
+			@Override
+			public void entityRemoved(Entity entity) {
+				applied.add("-" + entity.getComponent(Marker.class).index);
+			}
+		});
+	}
+
+	/**
+	 * Stops the worker pool.
+	 */
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * The changes recorded by several chunks are applied after the join,
+	 * all of them and in the order they were recorded.
+	 */
+	@Test
+	public void changesAppliedAfterJoinInOrder() {
+		RecordingSystem system = new RecordingSystem(executor);
+		engine.addSystem(system);
+		system.update(0f);
+
+		assertTrue(system.threads.size() > 1);
+		assertTrue(!system.appliedEarly);
+		assertEquals(ENTITIES / 5 + (ENTITIES + 2) / 3, system.recorded.size());
+		assertEquals(system.recorded, applied);
+		assertEquals(ENTITIES + ENTITIES / 5 - (ENTITIES + 2) / 3, engine.getEntities().size());
+	}
+
+}